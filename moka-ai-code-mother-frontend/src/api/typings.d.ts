@@ -101,6 +101,12 @@ declare namespace API {
     message?: string
   }
 
+  type BaseResponseCursorPageChatHistory = {
+    code?: number
+    data?: CursorPageChatHistory
+    message?: string
+  }
+
   type BaseResponsePageChatHistory = {
     code?: number
     data?: PageChatHistory
@@ -192,6 +198,7 @@ declare namespace API {
   type listAppChatHistoryParams = {
     appId: number
     pageSize?: number
+    cursor?: string
     lastCreateTime?: string
   }
 
@@ -219,6 +226,12 @@ declare namespace API {
     optimizeCountQuery?: boolean
   }
 
+  type CursorPageChatHistory = {
+    records?: ChatHistory[]
+    nextCursor?: string
+    hasMore?: boolean
+  }
+
   type PageChatHistory = {
     records?: ChatHistory[]
     pageNumber?: number
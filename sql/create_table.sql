@@ -46,9 +46,13 @@ create table app
     isDelete     tinyint  default 0                 not null comment '是否删除',
     UNIQUE KEY uk_deployKey (deployKey), -- 确保部署标识唯一
     INDEX idx_appName (appName),         -- 提升基于应用名称的查询性能
-    INDEX idx_userId (userId)            -- 提升基于用户 ID 的查询性能
+    INDEX idx_userId_createTime (userId, createTime), -- 我的应用游标分页（同时覆盖按用户 ID 的查询）
+    INDEX idx_priority (priority)                     -- 精选应用游标分页
 ) comment '应用' collate = utf8mb4_unicode_ci;
 
+-- 已有库升级：应用列表游标分页索引
+-- alter table app drop index idx_userId, add index idx_userId_createTime (userId, createTime), add index idx_priority (priority);
+
 -- 对话历史表
 create table chat_history
 (
@@ -63,8 +67,11 @@ create table chat_history
     isDelete    tinyint  default 0                 not null comment '是否删除',
 #     INDEX idx_appId (appId),                       -- 提升基于应用的查询性能，在这里是冗余的，因为复合索引的第一个参数是appId
     INDEX idx_createTime (createTime),             -- 提升基于时间的查询性能
-    INDEX idx_appId_createTime (appId, createTime) -- 游标查询核心索引
+    INDEX idx_appId_createTime_id (appId, createTime, id) -- 游标查询核心索引，(createTime, id) 键集分页
 ) comment '对话历史' collate = utf8mb4_unicode_ci;
 
+-- 已有库升级：替换游标查询索引
+-- alter table chat_history drop index idx_appId_createTime, add index idx_appId_createTime_id (appId, createTime, id);
+
 
 
@@ -1,16 +1,18 @@
 package com.erokin.mokaaicodemother.ai;
 
-import com.erokin.mokaaicodemother.service.ChatHistoryService;
+import com.erokin.mokaaicodemother.constant.AppConstant;
 import com.github.benmanes.caffeine.cache.Cache;
-import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 @Configuration
 @Slf4j
@@ -23,44 +25,43 @@ public class AiCodeGeneratorServiceFactory {
     private StreamingChatModel streamingChatModel;
 
     @Resource
-    private RedisChatMemoryStore redisChatMemoryStore;
+    private ChatMemoryStore chatMemoryStore;
 
     @Resource
-    private Cache<Long,AiCodeGeneratorService> aiCodeGeneratorServiceCache;
-
-    @Resource
-    private ChatHistoryService chatHistoryService;
+    @Lazy
+    private Cache<Long, ChatMemory> chatMemoryCache;
 
 
-    @Bean
     /**
-     * 默认服务
+     * 所有应用共用的 AI 服务，按 @MemoryId（appId）取各自的对话记忆
      */
+    @Bean
     public AiCodeGeneratorService aiCodeGeneratorService() {
-        return this.createAiCodeGeneratorService(0L);
+        return AiServices.builder(AiCodeGeneratorService.class)
+                .chatModel(chatModel)
+                .streamingChatModel(streamingChatModel)
+                .chatMemoryProvider(memoryId -> chatMemoryCache.get(Long.valueOf(String.valueOf(memoryId)), this::createChatMemory))
+                .build();
     }
 
+    /**
+     * 根据 appId 获取服务，同时刷新该应用对话记忆的缓存访问时间
+     */
     public AiCodeGeneratorService getAiCodeGeneratorService(long appId) {
-        return aiCodeGeneratorServiceCache.get(appId, key -> createAiCodeGeneratorService(appId));
+        chatMemoryCache.get(appId, this::createChatMemory);
+        return aiCodeGeneratorService();
     }
+
     /**
-     * 根据 appId 获取服务
+     * 根据 appId 构建独立的对话记忆，首次读取时才从 Redis / 数据库恢复
      */
-    public AiCodeGeneratorService createAiCodeGeneratorService(long appId) {
-        log.info("为 appId: {} 创建新的 AI 服务实例", appId);
-        // 根据 appId 构建独立的对话记忆
-        MessageWindowChatMemory chatMemory = MessageWindowChatMemory
+    private ChatMemory createChatMemory(Long appId) {
+        log.info("为 appId: {} 创建对话记忆", appId);
+        return MessageWindowChatMemory
                 .builder()
                 .id(appId)
-                .chatMemoryStore(redisChatMemoryStore)
-                .maxMessages(20)
-                .build();
-        // 从数据库中加载对话记录
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20);
-        return AiServices.builder(AiCodeGeneratorService.class)
-                .chatModel(chatModel)
-                .streamingChatModel(streamingChatModel)
-                .chatMemory(chatMemory)
+                .chatMemoryStore(chatMemoryStore)
+                .maxMessages(AppConstant.CHAT_MEMORY_MAX_MESSAGES)
                 .build();
     }
 
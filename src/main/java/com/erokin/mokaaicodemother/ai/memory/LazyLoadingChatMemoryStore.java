@@ -0,0 +1,91 @@
+package com.erokin.mokaaicodemother.ai.memory;
+
+import cn.hutool.core.util.NumberUtil;
+import com.erokin.mokaaicodemother.service.ChatHistoryService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 懒加载对话记忆存储
+ * 读取时先查 Redis，未命中才从 chat_history 表恢复最近的对话并回写 Redis；
+ * 已确认过的记忆 id 会被记住，空记忆不会反复查库，AI 服务实例被淘汰重建时也无需重新加载
+ */
+@Slf4j
+public class LazyLoadingChatMemoryStore implements ChatMemoryStore {
+
+    private final ChatMemoryStore delegate;
+
+    private final ChatHistoryService chatHistoryService;
+
+    /**
+     * 从数据库恢复的最大消息数
+     */
+    private final int maxMessages;
+
+    // 已与数据库对齐的记忆 id，过期时间不超过 Redis 中记忆的过期时间
+    private final Cache<Object, Boolean> hydratedIds;
+
+    public LazyLoadingChatMemoryStore(ChatMemoryStore delegate, ChatHistoryService chatHistoryService,
+                                      int maxMessages, Duration hydratedTtl) {
+        this.delegate = delegate;
+        this.chatHistoryService = chatHistoryService;
+        this.maxMessages = maxMessages;
+        this.hydratedIds = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(hydratedTtl)
+                .build();
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        List<ChatMessage> messages = delegate.getMessages(memoryId);
+        if (!messages.isEmpty() || hydratedIds.getIfPresent(memoryId) != null) {
+            return messages;
+        }
+        // 同一个记忆 id 只由一个线程查库，其余线程等待后直接读取结果
+        AtomicReference<List<ChatMessage>> loaded = new AtomicReference<>();
+        hydratedIds.get(memoryId, key -> {
+            loaded.set(hydrate(key));
+            return Boolean.TRUE;
+        });
+        return loaded.get() != null ? loaded.get() : delegate.getMessages(memoryId);
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        delegate.updateMessages(memoryId, messages);
+        hydratedIds.put(memoryId, Boolean.TRUE);
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        delegate.deleteMessages(memoryId);
+        // 主动清空的记忆不再从数据库恢复
+        hydratedIds.put(memoryId, Boolean.TRUE);
+    }
+
+    private List<ChatMessage> hydrate(Object memoryId) {
+        String id = String.valueOf(memoryId);
+        if (!NumberUtil.isLong(id) || Long.parseLong(id) <= 0) {
+            return List.of();
+        }
+        // 再查一次，避免覆盖等待期间其他线程写入的记忆
+        List<ChatMessage> messages = delegate.getMessages(memoryId);
+        if (!messages.isEmpty()) {
+            return messages;
+        }
+        List<ChatMessage> history = chatHistoryService.loadRecentChatMessages(Long.parseLong(id), maxMessages);
+        if (!history.isEmpty()) {
+            delegate.updateMessages(memoryId, history);
+        }
+        log.info("Redis 未命中，从数据库恢复对话记忆，memoryId: {}, size: {}", memoryId, history.size());
+        return history;
+    }
+}
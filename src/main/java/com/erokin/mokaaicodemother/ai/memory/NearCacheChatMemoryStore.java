@@ -0,0 +1,195 @@
+package com.erokin.mokaaicodemother.ai.memory;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.JedisPubSub;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 二级对话记忆存储
+ * 热点记忆窗口缓存在本地 Caffeine 中，读取无需访问 Redis；写入同步写穿到 Redis，
+ * 并通过 Redis 发布订阅通知其他节点失效本地副本，多节点部署时不会读到旧窗口
+ */
+@Slf4j
+public class NearCacheChatMemoryStore implements ChatMemoryStore, Closeable {
+
+    /**
+     * 失效通知频道，消息格式：{nodeId}:{memoryId}
+     */
+    public static final String INVALIDATION_CHANNEL = "chat_memory:invalidate";
+
+    /**
+     * 订阅断开后的重连间隔
+     */
+    private static final long RESUBSCRIBE_INTERVAL_MILLIS = 1000;
+
+    private final ChatMemoryStore delegate;
+
+    // 为空时只在本节点缓存（单节点部署或测试）
+    private final JedisPooled jedis;
+
+    /**
+     * 当前节点 id，用于忽略自己发出的失效通知
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final Cache<String, List<ChatMessage>> localCache;
+
+    private final JedisPubSub subscriber = new JedisPubSub() {
+        @Override
+        public void onMessage(String channel, String message) {
+            handleInvalidation(message);
+        }
+    };
+
+    // 本地记忆窗口变化（写入、从 Redis 加载）后的监听器，参数为 memoryId
+    private final List<Consumer<Object>> changeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running = true;
+
+    public NearCacheChatMemoryStore(ChatMemoryStore delegate, JedisPooled jedis, long maximumSize, Duration expireAfterAccess) {
+        this.delegate = delegate;
+        this.jedis = jedis;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+        if (jedis != null) {
+            Thread.ofPlatform().name("chat-memory-invalidation").daemon(true).start(this::subscribeLoop);
+        }
+    }
+
+    /**
+     * 注册本地记忆窗口变化监听器，用于按最新窗口大小重新估算占用
+     */
+    public void addChangeListener(Consumer<Object> listener) {
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        String key = toKey(memoryId);
+        List<ChatMessage> messages = localCache.getIfPresent(key);
+        if (messages != null) {
+            return messages;
+        }
+        messages = localCache.get(key, k -> List.copyOf(delegate.getMessages(memoryId)));
+        fireChanged(memoryId);
+        return messages;
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        delegate.updateMessages(memoryId, messages);
+        localCache.put(toKey(memoryId), List.copyOf(messages));
+        publishInvalidation(memoryId);
+        fireChanged(memoryId);
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        delegate.deleteMessages(memoryId);
+        localCache.invalidate(toKey(memoryId));
+        publishInvalidation(memoryId);
+    }
+
+    /**
+     * 本地缓存中的记忆窗口，不存在时返回 null（不会访问 Redis）
+     */
+    public List<ChatMessage> getLocalMessages(Object memoryId) {
+        return localCache.getIfPresent(toKey(memoryId));
+    }
+
+    /**
+     * 仅移除本地副本，Redis 中的记忆保留
+     */
+    public void evictLocal(Object memoryId) {
+        localCache.invalidate(toKey(memoryId));
+    }
+
+    /**
+     * 处理其他节点发出的失效通知
+     */
+    void handleInvalidation(String message) {
+        int index = message.indexOf(':');
+        if (index <= 0 || nodeId.equals(message.substring(0, index))) {
+            return;
+        }
+        localCache.invalidate(message.substring(index + 1));
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (subscriber.isSubscribed()) {
+            subscriber.unsubscribe();
+        }
+        if (jedis != null) {
+            jedis.close();
+        }
+    }
+
+    private void fireChanged(Object memoryId) {
+        for (Consumer<Object> listener : changeListeners) {
+            try {
+                listener.accept(memoryId);
+            } catch (RuntimeException e) {
+                log.warn("对话记忆变化监听器执行失败，memoryId: {}, error: {}", memoryId, e.getMessage());
+            }
+        }
+    }
+
+    private void publishInvalidation(Object memoryId) {
+        if (jedis == null) {
+            return;
+        }
+        try {
+            jedis.publish(INVALIDATION_CHANNEL, nodeId + ":" + toKey(memoryId));
+        } catch (Exception e) {
+            // 通知失败时其他节点最多读到过期窗口直到本地缓存过期，不影响本次写入
+            log.warn("发布对话记忆失效通知失败，memoryId: {}, error: {}", memoryId, e.getMessage());
+        }
+    }
+
+    private void subscribeLoop() {
+        while (running) {
+            try {
+                // 阻塞直到取消订阅或连接断开
+                jedis.subscribe(subscriber, INVALIDATION_CHANNEL);
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("对话记忆失效订阅中断，稍后重连: {}", e.getMessage());
+                }
+            }
+            if (running) {
+                // 断开期间可能错过通知，清空本地副本
+                localCache.invalidateAll();
+                try {
+                    Thread.sleep(RESUBSCRIBE_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static String toKey(Object memoryId) {
+        return StrUtil.toString(memoryId);
+    }
+}
@@ -0,0 +1,55 @@
+package com.erokin.mokaaicodemother.common;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ * 不统计总数，多查一条判断是否还有下一页
+ */
+@Data
+public class CursorPage<T> implements Serializable {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> records = new ArrayList<>();
+
+    /**
+     * 下一页游标，没有下一页时为 null
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 由多查一条的结果构建分页
+     *
+     * @param rows         最多 pageSize + 1 条数据
+     * @param pageSize     页面大小
+     * @param cursorMapper 由记录生成游标
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int pageSize, Function<T, KeysetCursor> cursorMapper) {
+        CursorPage<T> page = new CursorPage<>();
+        if (rows == null || rows.isEmpty()) {
+            return page;
+        }
+        boolean hasMore = rows.size() > pageSize;
+        List<T> records = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        page.setRecords(records);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            page.setNextCursor(cursorMapper.apply(records.getLast()).encode());
+        }
+        return page;
+    }
+}
@@ -0,0 +1,43 @@
+package com.erokin.mokaaicodemother.common;
+
+import cn.hutool.core.util.StrUtil;
+import com.erokin.mokaaicodemother.exception.BusinessException;
+import com.erokin.mokaaicodemother.exception.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 键集分页游标
+ * 由上一页最后一条记录的排序字段值与 id 组成，编码为不透明的 Base64URL 字符串，客户端原样回传即可
+ *
+ * @param sortValue 排序字段值
+ * @param id        记录 id（排序字段相同时的次序）
+ */
+public record KeysetCursor(String sortValue, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        String raw = sortValue + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @return 游标为空时返回 null
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (StrUtil.isBlank(cursor)) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            return new KeysetCursor(raw.substring(0, index), Long.parseLong(raw.substring(index + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.model.entity.App;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 应用缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.cache")
+@Data
+public class AppCacheConfig {
+
+    /**
+     * 缓存过期时间（其他节点修改应用后最多延迟该时长生效）
+     */
+    private Duration expireAfterWrite = Duration.ofSeconds(30);
+
+    /**
+     * 最多缓存的应用数
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * 应用缓存 <appId, App>，生成、部署、对话历史等路径共用，本节点修改、删除应用时失效
+     */
+    @Bean
+    public Cache<Long, App> appCache(MeterRegistry meterRegistry) {
+        Cache<Long, App> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "appCache");
+        return cache;
+    }
+}
@@ -0,0 +1,44 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.manager.ApproximateCountCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+
+/**
+ * 分页近似总数缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "list.count-cache")
+@Data
+public class ApproximateCountCacheConfig {
+
+    /**
+     * 超过该时长后异步重新统计
+     */
+    private Duration refreshAfterWrite = Duration.ofSeconds(30);
+
+    /**
+     * 超过该时长未刷新则丢弃，下次同步统计
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+    /**
+     * 最多缓存的查询条件数
+     */
+    private long maximumSize = 1000;
+
+    /**
+     * 应用列表的近似总数，统计在虚拟线程上执行
+     */
+    @Bean
+    public ApproximateCountCache<String> appCountCache(Scheduler generationIoScheduler, MeterRegistry meterRegistry) {
+        return new ApproximateCountCache<>(refreshAfterWrite, expireAfterWrite, maximumSize,
+                generationIoScheduler::schedule, meterRegistry, "appCountCache");
+    }
+}
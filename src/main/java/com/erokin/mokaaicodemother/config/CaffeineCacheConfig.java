@@ -2,41 +2,110 @@ package com.erokin.mokaaicodemother.config;
 
 import com.erokin.mokaaicodemother.ai.AiCodeGeneratorService;
 
+import com.erokin.mokaaicodemother.ai.memory.NearCacheChatMemoryStore;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import java.time.Duration;
+import java.util.List;
 
 @Configuration
+@ConfigurationProperties(prefix = "ai-service.cache")
 @Slf4j
 @Data
 public class CaffeineCacheConfig {
     // 缓存配置:
-    // 缓存大小
-    private final int maximumSize = 10_000;
+    // 缓存总权重上限（KB），按估算的内存占用淘汰
+    private long maximumWeightKb = 256 * 1024;
+    // 单个对话记忆对象本身的估算占用（KB），不含消息
+    private int entryWeightKb = 1;
+    // 对话记忆尚未加载时按该值估算记忆窗口占用（KB）
+    private int defaultMemoryWeightKb = 64;
     // 缓存过期时间
-    private final Duration expireAfterWrite = Duration.ofMinutes(30);
+    private Duration expireAfterWrite = Duration.ofMinutes(30);
     // 缓存访问后过期时间
-    private final Duration expireAfterAccess = Duration.ofMinutes(10);
+    private Duration expireAfterAccess = Duration.ofMinutes(10);
 
 
     /**
-     * 创建 AI 服务实例缓存 <id, AiCodeGeneratorService>
+     * 创建对话记忆缓存 <appId, ChatMemory>，共享的 AI 服务按 appId 从这里取对话记忆
      * @return
      */
     @Bean
-    public Cache<Long,AiCodeGeneratorService> aiCodeGeneratorServiceCache() {
-        return Caffeine.newBuilder()
-                .maximumSize(maximumSize)
+    public Cache<Long, ChatMemory> chatMemoryCache(NearCacheChatMemoryStore nearCacheChatMemoryStore,
+                                                   MeterRegistry meterRegistry,
+                                                   @Lazy AiCodeGeneratorService aiCodeGeneratorService) {
+        Cache<Long, ChatMemory> cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightKb)
+                .weigher((Long key, ChatMemory value) ->
+                        entryWeightKb + estimateMemoryWeightKb(nearCacheChatMemoryStore.getLocalMessages(key)))
                 .expireAfterWrite(expireAfterWrite)
                 .expireAfterAccess(expireAfterAccess)
-                .removalListener((key, value, cause) -> {
-                    log.debug("AI 服务实例被移除，appId: {}, 原因: {}", key, cause);
+                .recordStats()
+                .removalListener((Long key, ChatMemory value, RemovalCause cause) -> {
+                    if (key != null && cause != RemovalCause.REPLACED) {
+                        // AI 服务内部也持有对话记忆，一并移除；记忆已写穿到 Redis，这里只释放本地副本
+                        aiCodeGeneratorService.evictChatMemory(key);
+                        nearCacheChatMemoryStore.evictLocal(key);
+                    }
+                    log.debug("对话记忆被移除，appId: {}, 原因: {}", key, cause);
                 })
                 .build();
+        // 权重只在写入缓存时计算一次，此时记忆通常尚未加载；窗口变化后用同一对象重新写入，按最新大小重新称重
+        nearCacheChatMemoryStore.addChangeListener(memoryId -> reweigh(cache, memoryId));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "chatMemoryCache");
+        Gauge.builder("cache.weighted.size", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .tag("cache", "chatMemoryCache")
+                .description("缓存估算占用（KB）")
+                .register(meterRegistry);
+        return cache;
+    }
+
+    private static void reweigh(Cache<Long, ChatMemory> cache, Object memoryId) {
+        Long key = Long.valueOf(String.valueOf(memoryId));
+        try {
+            cache.asMap().computeIfPresent(key, (k, memory) -> memory);
+        } catch (IllegalStateException e) {
+            // 在该条目自身的加载过程中触发，加载完成时会按当时的窗口称重
+            log.debug("对话记忆重新称重跳过，appId: {}", key);
+        }
+    }
+
+    /**
+     * 按消息文本长度估算记忆窗口占用（KB），每个字符按 2 字节计，另加每条消息的对象开销
+     */
+    private int estimateMemoryWeightKb(List<ChatMessage> messages) {
+        if (messages == null) {
+            return defaultMemoryWeightKb;
+        }
+        long bytes = 0;
+        for (ChatMessage message : messages) {
+            bytes += 256;
+            bytes += switch (message) {
+                case UserMessage userMessage when userMessage.hasSingleText() ->
+                        userMessage.singleText().length() * 2L;
+                case AiMessage aiMessage when aiMessage.text() != null ->
+                        aiMessage.text().length() * 2L;
+                case SystemMessage systemMessage -> systemMessage.text().length() * 2L;
+                default -> 0L;
+            };
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes / 1024 + 1);
     }
 }
@@ -0,0 +1,40 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.manager.ChatHistoryWriteBuffer;
+import com.erokin.mokaaicodemother.mapper.ChatHistoryMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 对话历史写缓冲配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat-history.write-buffer")
+@Data
+public class ChatHistoryWriteBufferConfig {
+
+    /**
+     * 单次批量插入的最大条数
+     */
+    private int batchSize = 100;
+
+    /**
+     * 定时写入间隔
+     */
+    private Duration flushInterval = Duration.ofMillis(500);
+
+    /**
+     * 队列容量，超出后同步写入
+     */
+    private int maxPending = 10_000;
+
+    @Bean(destroyMethod = "close")
+    public ChatHistoryWriteBuffer chatHistoryWriteBuffer(ChatHistoryMapper chatHistoryMapper, MeterRegistry meterRegistry) {
+        return new ChatHistoryWriteBuffer(chatHistoryMapper, batchSize, flushInterval, maxPending, meterRegistry);
+    }
+}
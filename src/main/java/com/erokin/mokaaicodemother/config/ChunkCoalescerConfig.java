@@ -0,0 +1,34 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.core.stream.ChunkCoalescer;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+/**
+ * 流式输出合并配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "generation.coalesce")
+@Data
+public class ChunkCoalescerConfig {
+
+    /**
+     * 累计字节数达到该值立即推送
+     */
+    private int maxBytes = 1024;
+
+    /**
+     * 片段最多等待的时长，不超过一帧以免感知到延迟；为 0 时不合并
+     */
+    private Duration maxDelay = Duration.ofMillis(16);
+
+    @Bean
+    public ChunkCoalescer chunkCoalescer() {
+        return new ChunkCoalescer(maxBytes, maxDelay, Schedulers.parallel());
+    }
+}
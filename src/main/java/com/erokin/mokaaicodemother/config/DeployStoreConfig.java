@@ -0,0 +1,34 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.constant.AppConstant;
+import com.erokin.mokaaicodemother.core.deploy.DeployStore;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 部署存储配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "deploy.store")
+@Data
+public class DeployStoreConfig {
+
+    /**
+     * 每个部署保留的历史版本数
+     */
+    private int keepVersions = 2;
+
+    /**
+     * 清理无引用对象的最小间隔
+     */
+    private Duration gcInterval = Duration.ofHours(1);
+
+    @Bean
+    public DeployStore deployStore() {
+        return new DeployStore(AppConstant.CODE_DEPLOY_ROOT_DIR, keepVersions, gcInterval);
+    }
+}
@@ -0,0 +1,35 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.manager.FeaturedAppSnapshot;
+import com.erokin.mokaaicodemother.mapper.AppMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 精选应用快照配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "featured-app.snapshot")
+@Data
+public class FeaturedAppSnapshotConfig {
+
+    /**
+     * 快照最多保留的应用数
+     */
+    private int maxSize = 1000;
+
+    /**
+     * 定时重建间隔（兜底，正常由修改事件触发重建）
+     */
+    private Duration refreshInterval = Duration.ofMinutes(5);
+
+    @Bean(destroyMethod = "close")
+    public FeaturedAppSnapshot featuredAppSnapshot(AppMapper appMapper, MeterRegistry meterRegistry) {
+        return new FeaturedAppSnapshot(appMapper, maxSize, refreshInterval, meterRegistry);
+    }
+}
@@ -0,0 +1,41 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.core.scheduler.GenerationScheduler;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 代码生成调度配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "generation.scheduler")
+@Data
+public class GenerationSchedulerConfig {
+
+    /**
+     * 全局最大并发生成数
+     */
+    private int maxConcurrent = 20;
+
+    /**
+     * 单个用户最大并发生成数
+     */
+    private int maxConcurrentPerUser = 2;
+
+    /**
+     * 全局最大排队数
+     */
+    private int maxQueueSize = 100;
+
+    /**
+     * 单个用户最大排队数
+     */
+    private int maxQueuePerUser = 3;
+
+    @Bean
+    public GenerationScheduler generationScheduler() {
+        return new GenerationScheduler(maxConcurrent, maxConcurrentPerUser, maxQueueSize, maxQueuePerUser);
+    }
+}
@@ -0,0 +1,39 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.core.stream.GenerationStreamRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+/**
+ * 生成流续传配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "generation.replay")
+@Data
+public class GenerationStreamRegistryConfig {
+
+    /**
+     * 每次生成的重放缓冲最多保留的字符数
+     */
+    private long maxBufferedChars = 1_000_000;
+
+    /**
+     * 没有客户端连接时，生成最多继续运行的时长
+     */
+    private Duration detachTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 生成结束后保留重放缓冲的时长
+     */
+    private Duration retainAfterComplete = Duration.ofMinutes(1);
+
+    @Bean
+    public GenerationStreamRegistry generationStreamRegistry() {
+        return new GenerationStreamRegistry(maxBufferedChars, detachTimeout, retainAfterComplete, Schedulers.parallel());
+    }
+}
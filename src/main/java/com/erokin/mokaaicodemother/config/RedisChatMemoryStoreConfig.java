@@ -1,10 +1,22 @@
 package com.erokin.mokaaicodemother.config;
 
+import cn.hutool.core.util.StrUtil;
+import com.erokin.mokaaicodemother.ai.memory.LazyLoadingChatMemoryStore;
+import com.erokin.mokaaicodemother.ai.memory.NearCacheChatMemoryStore;
+import com.erokin.mokaaicodemother.constant.AppConstant;
+import com.erokin.mokaaicodemother.service.ChatHistoryService;
 import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisPooled;
+
+import java.time.Duration;
 
 @Configuration
 @ConfigurationProperties(prefix = "spring.data.redis")
@@ -19,6 +31,16 @@ public class RedisChatMemoryStoreConfig {
 
     private long ttl;
 
+    /**
+     * 本地缓存的记忆窗口数
+     */
+    private static final long NEAR_CACHE_MAXIMUM_SIZE = 10_000;
+
+    /**
+     * 本地缓存的记忆窗口多久未访问后过期
+     */
+    private static final Duration NEAR_CACHE_EXPIRE_AFTER_ACCESS = Duration.ofMinutes(10);
+
     @Bean
     public RedisChatMemoryStore redisChatMemoryStore() {
         return RedisChatMemoryStore.builder()
@@ -28,4 +50,26 @@ public class RedisChatMemoryStoreConfig {
                 .ttl(ttl)
                 .build();
     }
+
+    /**
+     * 二级对话记忆存储：本地 Caffeine + Redis，多节点通过发布订阅失效本地副本
+     */
+    @Bean(destroyMethod = "close")
+    public NearCacheChatMemoryStore nearCacheChatMemoryStore(RedisChatMemoryStore redisChatMemoryStore) {
+        JedisPooled jedis = new JedisPooled(new HostAndPort(host, port), DefaultJedisClientConfig.builder()
+                .password(StrUtil.emptyToNull(password))
+                .build());
+        return new NearCacheChatMemoryStore(redisChatMemoryStore, jedis,
+                NEAR_CACHE_MAXIMUM_SIZE, NEAR_CACHE_EXPIRE_AFTER_ACCESS);
+    }
+
+    /**
+     * 对话记忆存储：二级缓存未命中时从数据库懒加载
+     */
+    @Bean
+    @Primary
+    public ChatMemoryStore chatMemoryStore(NearCacheChatMemoryStore nearCacheChatMemoryStore, ChatHistoryService chatHistoryService) {
+        return new LazyLoadingChatMemoryStore(nearCacheChatMemoryStore, chatHistoryService,
+                AppConstant.CHAT_MEMORY_MAX_MESSAGES, Duration.ofSeconds(ttl));
+    }
 }
@@ -0,0 +1,95 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.constant.AppConstant;
+import com.erokin.mokaaicodemother.core.saver.CodeFileSaverTemplate;
+import com.erokin.mokaaicodemother.manager.DeployIndex;
+import com.erokin.mokaaicodemother.manager.StaticFileCache;
+import com.erokin.mokaaicodemother.manager.StaticFileSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+
+import java.time.Duration;
+
+/**
+ * 静态资源缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "static-resource.cache")
+@Data
+public class StaticFileCacheConfig {
+
+    /**
+     * 缓存总大小（字节）
+     */
+    private long maximumWeightBytes = 64L * 1024 * 1024;
+
+    /**
+     * 单个文件超过该大小不缓存内容，只缓存元信息（字节）
+     * 不小于 sendfileThreshold 的文件在支持 sendfile 时不从缓存输出，缓存内容仅用于不支持 sendfile 的连接（如 TLS）
+     */
+    private long maxFileSize = 1024L * 1024;
+
+    /**
+     * 缓存过期时间（兜底，正常由发布事件失效）
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(30);
+
+    /**
+     * 不小于该大小的文件在容器支持时使用 sendfile 发送，不论内容是否已缓存（字节）
+     */
+    private long sendfileThreshold = 48L * 1024;
+
+    /**
+     * 部署应用非 HTML 资源的浏览器缓存时间（文件名不带内容哈希，重新部署后最多延迟该时长生效）
+     */
+    private Duration deployAssetMaxAge = Duration.ofHours(1);
+
+    /**
+     * 预览目录的热点文件缓存，目录发布或回滚时失效
+     */
+    @Bean
+    public StaticFileCache previewFileCache(MeterRegistry meterRegistry) {
+        StaticFileCache previewFileCache = new StaticFileCache(AppConstant.CODE_OUTPUT_ROOT_DIR,
+                maximumWeightBytes, maxFileSize, expireAfterWrite, meterRegistry, "previewFileCache");
+        CodeFileSaverTemplate.addPublishListener(previewFileCache::invalidate);
+        return previewFileCache;
+    }
+
+    /**
+     * 预览目录的文件发送
+     */
+    @Bean
+    public StaticFileSender previewFileSender(StaticFileCache previewFileCache) {
+        return new StaticFileSender(previewFileCache, sendfileThreshold, CacheControl.noCache());
+    }
+
+    /**
+     * 部署目录的热点文件缓存，重新部署时由 {@link DeployIndex} 失效
+     */
+    @Bean
+    public StaticFileCache deployFileCache(MeterRegistry meterRegistry) {
+        return new StaticFileCache(AppConstant.CODE_DEPLOY_ROOT_DIR, maximumWeightBytes, maxFileSize,
+                expireAfterWrite, meterRegistry, "deployFileCache");
+    }
+
+    /**
+     * 部署目录的文件发送
+     */
+    @Bean
+    public StaticFileSender deployFileSender(StaticFileCache deployFileCache) {
+        return new StaticFileSender(deployFileCache, sendfileThreshold,
+                CacheControl.maxAge(deployAssetMaxAge).cachePublic());
+    }
+
+    /**
+     * 已部署应用索引
+     */
+    @Bean
+    public DeployIndex deployIndex(StaticFileCache deployFileCache) {
+        return new DeployIndex(AppConstant.CODE_DEPLOY_ROOT_DIR, deployFileCache);
+    }
+}
@@ -0,0 +1,46 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.model.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 登录用户缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "user.cache")
+@Data
+public class UserCacheConfig {
+
+    /**
+     * 缓存过期时间（其他节点修改用户后最多延迟该时长生效）
+     */
+    private Duration expireAfterWrite = Duration.ofSeconds(30);
+
+    /**
+     * 最多缓存的用户数
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * 登录用户缓存 <userId, User>，本节点修改、删除用户时失效
+     */
+    @Bean
+    public Cache<Long, User> userCache(MeterRegistry meterRegistry) {
+        Cache<Long, User> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userCache");
+        return cache;
+    }
+}
@@ -0,0 +1,27 @@
+package com.erokin.mokaaicodemother.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程调度器配置
+ * 生成链路中的文件写入、数据库插入等阻塞操作切换到虚拟线程执行，
+ * 不占用 Reactor / HTTP 平台线程；Tomcat 请求线程是否使用虚拟线程由 spring.threads.virtual.enabled 控制
+ */
+@Configuration
+public class VirtualThreadSchedulerConfig {
+
+    /**
+     * 代码生成链路的阻塞 IO 调度器，每个任务一个虚拟线程
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler generationIoScheduler() {
+        return Schedulers.fromExecutorService(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("generation-io-", 0).factory()),
+                "generation-io");
+    }
+}
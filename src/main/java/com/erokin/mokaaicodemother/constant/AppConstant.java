@@ -6,6 +6,11 @@ public interface AppConstant {
      */
     String CODE_OUTPUT_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_output";
 
+    /**
+     * 应用生成目录保留的历史版本数
+     */
+    int CODE_OUTPUT_KEEP_VERSIONS = 5;
+
     /**
      * 应用部署目录
      */
@@ -16,4 +21,9 @@ public interface AppConstant {
      */
     String CODE_DEPLOY_HOST = "http://localhost";
 
+    /**
+     * 对话记忆窗口大小
+     */
+    int CHAT_MEMORY_MAX_MESSAGES = 20;
+
 }
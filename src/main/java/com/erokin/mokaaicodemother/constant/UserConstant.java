@@ -7,6 +7,11 @@ public interface UserConstant {
      */
     String USER_LOGIN_STATE = "user_login";
 
+    /**
+     * 当前请求已查询的登录用户（请求属性键），同一请求内多次获取登录用户只查询一次
+     */
+    String LOGIN_USER_REQUEST_ATTRIBUTE = "login_user";
+
     //  region 权限
 
     /**
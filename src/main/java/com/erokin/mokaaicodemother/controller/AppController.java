@@ -5,14 +5,21 @@ import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
 import com.erokin.mokaaicodemother.annotation.AuthCheck;
 import com.erokin.mokaaicodemother.common.BaseResponse;
+import com.erokin.mokaaicodemother.common.CursorPage;
 import com.erokin.mokaaicodemother.common.DeleteRequest;
 import com.erokin.mokaaicodemother.common.ResultUtils;
 import com.erokin.mokaaicodemother.constant.UserConstant;
+import com.erokin.mokaaicodemother.core.scheduler.GenerationScheduler;
+import com.erokin.mokaaicodemother.core.stream.ChunkCoalescer;
+import com.erokin.mokaaicodemother.core.stream.ChunkJsonEncoder;
+import com.erokin.mokaaicodemother.core.stream.GenerationStreamRegistry;
 import com.erokin.mokaaicodemother.exception.BusinessException;
 import com.erokin.mokaaicodemother.exception.ErrorCode;
 import com.erokin.mokaaicodemother.exception.ThrowUtils;
+import com.erokin.mokaaicodemother.manager.FeaturedAppSnapshot;
 import com.erokin.mokaaicodemother.model.dto.app.*;
 import com.erokin.mokaaicodemother.model.entity.User;
+import com.erokin.mokaaicodemother.model.vo.AppDeployVO;
 import com.erokin.mokaaicodemother.model.vo.AppVO;
 import com.erokin.mokaaicodemother.service.UserService;
 import com.mybatisflex.core.paginate.Page;
@@ -23,6 +30,7 @@ import com.erokin.mokaaicodemother.model.entity.App;
 import com.erokin.mokaaicodemother.service.AppService;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -47,6 +55,18 @@ public class AppController {
     @Resource
     private com.erokin.mokaaicodemother.service.ChatHistoryService chatHistoryService;
 
+    @Resource
+    private GenerationScheduler generationScheduler;
+
+    @Resource
+    private FeaturedAppSnapshot featuredAppSnapshot;
+
+    @Resource
+    private ChunkCoalescer chunkCoalescer;
+
+    @Resource
+    private GenerationStreamRegistry generationStreamRegistry;
+
     // region 用户功能
 
     /**
@@ -87,6 +107,10 @@ public class AppController {
         }
         boolean result = appService.updateById(app);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 精选应用改名后重建快照
+        if (isFeatured(oldApp)) {
+            featuredAppSnapshot.refreshAsync();
+        }
         return ResultUtils.success(true);
     }
 
@@ -110,6 +134,9 @@ public class AppController {
         // 关联删除该应用的所有对话历史，避免数据冗余
         chatHistoryService.deleteByAppId(id);
         boolean b = appService.removeById(id);
+        if (isFeatured(oldApp)) {
+            featuredAppSnapshot.refreshAsync();
+        }
         return ResultUtils.success(b);
     }
 
@@ -135,6 +162,7 @@ public class AppController {
         appQueryRequest.setUserId(loginUser.getId());
         long pageNum = appQueryRequest.getPageNum();
         long pageSize = Math.min(appQueryRequest.getPageSize(), 20);
+        // 自己的应用总数走 (userId, createTime) 索引，统计开销小；增删后需立即反映在页码上，不使用近似总数
         Page<App> appPage = appService.page(Page.of(pageNum, pageSize),
                 appService.getQueryWrapper(appQueryRequest));
         Page<AppVO> appVOPage = new Page<>(pageNum, pageSize, appPage.getTotalRow());
@@ -151,14 +179,52 @@ public class AppController {
         ThrowUtils.throwIf(appQueryRequest == null, ErrorCode.PARAMS_ERROR);
         long pageNum = appQueryRequest.getPageNum();
         long pageSize = Math.min(appQueryRequest.getPageSize(), 20);
-        Page<App> appPage = appService.page(Page.of(pageNum, pageSize),
-                appService.getFeaturedAppQueryWrapper(appQueryRequest));
+        Page<App> appPage = appService.pageFeaturedApp(appQueryRequest, pageSize);
         Page<AppVO> appVOPage = new Page<>(pageNum, pageSize, appPage.getTotalRow());
         List<AppVO> appVOList = appService.getAppVOList(appPage.getRecords());
         appVOPage.setRecords(appVOList);
         return ResultUtils.success(appVOPage);
     }
 
+    /**
+     * 游标分页查询自己的应用列表（按创建时间从新到旧，每页最多 20 个，不统计总数）
+     */
+    @PostMapping("/my/list/cursor/vo")
+    public BaseResponse<CursorPage<AppVO>> listMyAppVOByCursor(@RequestBody AppQueryRequest appQueryRequest,
+                                                               HttpServletRequest request) {
+        ThrowUtils.throwIf(appQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        appQueryRequest.setUserId(loginUser.getId());
+        int pageSize = Math.min(appQueryRequest.getPageSize(), 20);
+        ThrowUtils.throwIf(pageSize <= 0, ErrorCode.PARAMS_ERROR, "页面大小必须大于0");
+        CursorPage<App> appPage = appService.listMyAppByCursor(appQueryRequest, pageSize);
+        return ResultUtils.success(toAppVOPage(appPage));
+    }
+
+    /**
+     * 游标分页查询精选的应用列表（按优先级从高到低，每页最多 20 个，不统计总数）
+     */
+    @PostMapping("/list/cursor/vo/featured")
+    public BaseResponse<CursorPage<AppVO>> listFeaturedAppVOByCursor(@RequestBody AppQueryRequest appQueryRequest) {
+        ThrowUtils.throwIf(appQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        int pageSize = Math.min(appQueryRequest.getPageSize(), 20);
+        ThrowUtils.throwIf(pageSize <= 0, ErrorCode.PARAMS_ERROR, "页面大小必须大于0");
+        CursorPage<App> appPage = appService.listFeaturedAppByCursor(appQueryRequest, pageSize);
+        return ResultUtils.success(toAppVOPage(appPage));
+    }
+
+    private static boolean isFeatured(App app) {
+        return app.getPriority() != null && app.getPriority() > 0;
+    }
+
+    private CursorPage<AppVO> toAppVOPage(CursorPage<App> appPage) {
+        CursorPage<AppVO> appVOPage = new CursorPage<>();
+        appVOPage.setRecords(appService.getAppVOList(appPage.getRecords()));
+        appVOPage.setNextCursor(appPage.getNextCursor());
+        appVOPage.setHasMore(appPage.isHasMore());
+        return appVOPage;
+    }
+
     // endregion
 
     // region 管理员功能
@@ -176,6 +242,7 @@ public class AppController {
         // 关联删除对话历史
         chatHistoryService.deleteByAppId(id);
         boolean b = appService.removeById(id);
+        featuredAppSnapshot.refreshAsync();
         return ResultUtils.success(b);
     }
 
@@ -193,6 +260,8 @@ public class AppController {
         appService.validApp(app, false);
         boolean result = appService.updateById(app);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 优先级、名称、封面都可能影响首页精选列表
+        featuredAppSnapshot.refreshAsync();
         return ResultUtils.success(true);
     }
 
@@ -205,8 +274,8 @@ public class AppController {
         ThrowUtils.throwIf(appQueryRequest == null, ErrorCode.PARAMS_ERROR);
         long pageNum = appQueryRequest.getPageNum();
         long pageSize = appQueryRequest.getPageSize();
-        Page<App> appPage = appService.page(Page.of(pageNum, pageSize),
-                appService.getQueryWrapper(appQueryRequest));
+        // 总数为近似值，后台定期刷新
+        Page<App> appPage = appService.pageWithApproximateTotal(appQueryRequest, false, pageSize);
         Page<AppVO> appVOPage = new Page<>(pageNum, pageSize, appPage.getTotalRow());
         List<AppVO> appVOList = appService.getAppVOList(appPage.getRecords());
         appVOPage.setRecords(appVOList);
@@ -227,30 +296,70 @@ public class AppController {
 
     /**
      * 对话生成代码（流式SSE）
+     * 每个事件带有 id，断线重连时浏览器携带 Last-Event-ID，从断点续传而不是重新生成
      */
     @GetMapping(value = "chat/gen/code",produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId,
                                                @RequestParam String message,
+                                               @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
                                                HttpServletRequest  request
                                       ){
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "message不能为空");
 
         User loginUser = userService.getLoginUser(request);
-        Flux<String> contentFlux = appService.chatToGenCode(appId, message, loginUser);
-        return contentFlux.map(chunk -> {// 将内容包装成JSON对象
-            Map<String, String> wrapper = Map.of("d", chunk);
-            String jsonData = JSONUtil.toJsonStr(wrapper);
-                    return ServerSentEvent.<String>builder()
-                            .data(jsonData)
-                            .build();
-        }).concatWith(Mono.just(
+        if (StrUtil.isNotBlank(lastEventId)) {
+            // 断线重连：从重放缓冲续传，找不到对应的生成时不再重新调用模型
+            Flux<ServerSentEvent<String>> resumed = generationStreamRegistry.resume(lastEventId, appId, loginUser.getId());
+            if (resumed == null) {
+                resumed = Flux.error(new BusinessException(ErrorCode.NOT_FOUND_ERROR, "生成已结束或已过期，请刷新后查看"));
+            }
+            return resumed.onErrorResume(BusinessException.class,
+                    e -> Flux.just(businessErrorEvent(e), doneEvent()));
+        }
+        // 同一应用已有相同消息的进行中生成时直接加入，不会再次调用模型
+        return generationStreamRegistry.startOrJoin(appId, loginUser.getId(), message,
+                        () -> buildGenerationFlux(appId, message, loginUser))
+                .onErrorResume(BusinessException.class, e -> Flux.just(businessErrorEvent(e), doneEvent()));
+    }
+
+    /**
+     * 构建一次生成的事件流：合并片段、编码成帧、排队调度，最后发送结束事件
+     */
+    private Flux<ServerSentEvent<String>> buildGenerationFlux(Long appId, String message, User loginUser) {
+        // 相邻 token 合并后再成帧，减少帧数和 flush 次数
+        Flux<String> contentFlux = chunkCoalescer.coalesce(appService.chatToGenCode(appId, message, loginUser));
+        // 将内容包装成JSON对象 {"d": chunk}，每个流复用一个编码缓冲区
+        ChunkJsonEncoder chunkJsonEncoder = new ChunkJsonEncoder();
+        Flux<ServerSentEvent<String>> sseFlux = contentFlux.map(chunk -> ServerSentEvent.<String>builder()
+                .data(chunkJsonEncoder.encode(chunk))
+                .build());
+        // 获得生成许可后才开始调用模型，排队期间推送排队位置
+        return generationScheduler.schedule(loginUser.getId(), sseFlux,
+                        position -> ServerSentEvent.<String>builder()
+                                .event("queue")
+                                .data(JSONUtil.toJsonStr(Map.of("position", position)))
+                                .build())
+                .onErrorResume(error -> error instanceof BusinessException e
+                                && e.getCode() == ErrorCode.TOO_MANY_REQUEST.getCode(),
+                        error -> Mono.just(businessErrorEvent((BusinessException) error)))
                 // 发送结束事件
-                ServerSentEvent.<String>builder()
-                        .event("done")
-                        .data("")
-                        .build()
-        ));
+                .concatWith(Mono.just(doneEvent()));
+    }
+
+    private static ServerSentEvent<String> businessErrorEvent(BusinessException e) {
+        Map<String, Object> errorData = Map.of("code", e.getCode(), "message", e.getMessage());
+        return ServerSentEvent.<String>builder()
+                .event("business-error")
+                .data(JSONUtil.toJsonStr(errorData))
+                .build();
+    }
+
+    private static ServerSentEvent<String> doneEvent() {
+        return ServerSentEvent.<String>builder()
+                .event("done")
+                .data("")
+                .build();
     }
 
     /**
@@ -259,14 +368,21 @@ public class AppController {
      * @return 部署网址
      */
     @PostMapping("/deploy")
-    public BaseResponse<String> deployApp(@RequestBody AppDeployRequest appDeployRequest, HttpServletRequest request) {
+    public BaseResponse<String> deployApp(@RequestBody AppDeployRequest appDeployRequest, HttpServletRequest request,
+                                          HttpServletResponse response) {
         ThrowUtils.throwIf(appDeployRequest == null || appDeployRequest.getAppId() <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
         User loginUser = userService.getLoginUser(request);
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR,"未登录");
         Long appId = appDeployRequest.getAppId();
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用不存在");
-        String deployUrl = appService.deployApp(appId, loginUser);
-        return ResultUtils.success(deployUrl);
+        AppDeployVO appDeployVO = appService.deployApp(appId, loginUser);
+        // 部署统计放在响应头中，响应体保持为部署网址
+        response.setHeader("Server-Timing", String.format("deploy;dur=%.3f", appDeployVO.getDurationMicros() / 1000.0));
+        response.setHeader("X-Deploy-Changed", String.valueOf(appDeployVO.getChanged()));
+        response.setHeader("X-Deploy-Files-Copied", String.valueOf(appDeployVO.getFilesCopied()));
+        response.setHeader("X-Deploy-Files-Removed", String.valueOf(appDeployVO.getFilesRemoved()));
+        response.setHeader("X-Deploy-Bytes-Copied", String.valueOf(appDeployVO.getBytesCopied()));
+        return ResultUtils.success(appDeployVO.getDeployUrl());
     }
 
     // endregion
@@ -2,6 +2,8 @@ package com.erokin.mokaaicodemother.controller;
 
 import com.erokin.mokaaicodemother.annotation.AuthCheck;
 import com.erokin.mokaaicodemother.common.BaseResponse;
+import com.erokin.mokaaicodemother.common.CursorPage;
+import com.erokin.mokaaicodemother.common.KeysetCursor;
 import com.erokin.mokaaicodemother.common.ResultUtils;
 import com.erokin.mokaaicodemother.constant.UserConstant;
 import com.erokin.mokaaicodemother.exception.ErrorCode;
@@ -107,17 +109,24 @@ public class ChatHistoryController {
      *
      * @param appId          应用ID
      * @param pageSize       页面大小
-     * @param lastCreateTime 最后一条记录的创建时间
+     * @param cursor         上一页返回的 nextCursor，首页不传
+     * @param lastCreateTime 最后一条记录的创建时间（兼容旧客户端，传了 cursor 时忽略）
      * @param request        请求
      * @return 对话历史分页
      */
     @GetMapping("/app/{appId}")
-    public BaseResponse<Page<ChatHistory>> listAppChatHistory(@PathVariable Long appId,
-                                                              @RequestParam(defaultValue = "10") int pageSize,
-                                                              @RequestParam(required = false) LocalDateTime lastCreateTime,
-                                                              HttpServletRequest request) {
+    public BaseResponse<CursorPage<ChatHistory>> listAppChatHistory(@PathVariable Long appId,
+                                                                    @RequestParam(defaultValue = "10") int pageSize,
+                                                                    @RequestParam(required = false) String cursor,
+                                                                    @RequestParam(required = false) LocalDateTime lastCreateTime,
+                                                                    HttpServletRequest request) {
         User loginUser = userService.getLoginUser(request);
-        Page<ChatHistory> result = chatHistoryService.listAppChatHistoryByPage(appId, pageSize, lastCreateTime, loginUser);
+        KeysetCursor keysetCursor = KeysetCursor.decode(cursor);
+        if (keysetCursor == null && lastCreateTime != null) {
+            // 旧游标只有时间，id 取 0 表示严格早于该时间
+            keysetCursor = new KeysetCursor(lastCreateTime.toString(), 0L);
+        }
+        CursorPage<ChatHistory> result = chatHistoryService.listAppChatHistoryByCursor(appId, pageSize, keysetCursor, loginUser);
         return ResultUtils.success(result);
     }
 
@@ -0,0 +1,74 @@
+package com.erokin.mokaaicodemother.controller;
+
+import com.erokin.mokaaicodemother.manager.DeployIndex;
+import com.erokin.mokaaicodemother.manager.StaticFileSender;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+
+@RestController
+@RequestMapping("/deploy")
+public class DeployResourceController {
+
+    // 应用部署目录的文件发送
+    @jakarta.annotation.Resource
+    private StaticFileSender deployFileSender;
+
+    @jakarta.annotation.Resource
+    private DeployIndex deployIndex;
+
+    /**
+     * 提供已部署应用的访问，支持目录重定向
+     * 访问格式：http://localhost:8123/api/deploy/{deployKey}[/{fileName}]
+     */
+    @GetMapping("/{deployKey}/**")
+    public ResponseEntity<Resource> serveDeployResource(
+            @PathVariable String deployKey,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        // 未部署的应用直接返回，不访问磁盘
+        if (!deployIndex.contains(deployKey)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            // 获取资源路径
+            String resourcePath = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+            resourcePath = resourcePath.substring(("/deploy/" + deployKey).length());
+            // 如果是目录访问（不带斜杠），重定向到带斜杠的URL
+            if (resourcePath.isEmpty()) {
+                HttpHeaders headers = new HttpHeaders();
+                headers.add("Location", request.getRequestURI() + "/");
+                return new ResponseEntity<>(headers, HttpStatus.MOVED_PERMANENTLY);
+            }
+            // 默认返回 index.html
+            if (resourcePath.equals("/")) {
+                resourcePath = "/index.html";
+            }
+            // 部署目录只在重新部署时变化，全部走缓存
+            return deployFileSender.send(deployKey, resourcePath, getContentTypeWithCharset(resourcePath), true,
+                    request, response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 根据文件扩展名返回带字符编码的 Content-Type
+     */
+    private String getContentTypeWithCharset(String filePath) {
+        if (filePath.endsWith(".html")) return "text/html; charset=UTF-8";
+        if (filePath.endsWith(".css")) return "text/css; charset=UTF-8";
+        if (filePath.endsWith(".js")) return "application/javascript; charset=UTF-8";
+        if (filePath.endsWith(".png")) return "image/png";
+        if (filePath.endsWith(".jpg")) return "image/jpeg";
+        return "application/octet-stream";
+    }
+}
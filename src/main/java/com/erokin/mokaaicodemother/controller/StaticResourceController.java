@@ -1,8 +1,9 @@
 package com.erokin.mokaaicodemother.controller;
 
-import com.erokin.mokaaicodemother.constant.AppConstant;
+import com.erokin.mokaaicodemother.core.saver.VersionedDirectory;
+import com.erokin.mokaaicodemother.manager.StaticFileSender;
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.core.io.FileSystemResource;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -13,14 +14,13 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.HandlerMapping;
 
-import java.io.File;
-
 @RestController
 @RequestMapping("/static")
 public class StaticResourceController {
 
-    // 应用生成根目录（用于浏览）
-    private static final String PREVIEW_ROOT_DIR = AppConstant.CODE_OUTPUT_ROOT_DIR;
+    // 应用生成根目录（用于浏览）的文件发送
+    @jakarta.annotation.Resource
+    private StaticFileSender previewFileSender;
 
     /**
      * 提供静态资源访问，支持目录重定向
@@ -29,7 +29,8 @@ public class StaticResourceController {
     @GetMapping("/{deployKey}/**")
     public ResponseEntity<Resource> serveStaticResource(
             @PathVariable String deployKey,
-            HttpServletRequest request) {
+            HttpServletRequest request,
+            HttpServletResponse response) {
         try {
             // 获取资源路径
             String resourcePath = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
@@ -44,18 +45,10 @@ public class StaticResourceController {
             if (resourcePath.equals("/")) {
                 resourcePath = "/index.html";
             }
-            // 构建文件路径
-            String filePath = PREVIEW_ROOT_DIR + "/" + deployKey + resourcePath;
-            File file = new File(filePath);
-            // 检查文件是否存在
-            if (!file.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-            // 返回文件资源
-            Resource resource = new FileSystemResource(file);
-            return ResponseEntity.ok()
-                    .header("Content-Type", getContentTypeWithCharset(filePath))
-                    .body(resource);
+            // 生成中的实时预览目录内容随时变化，不走缓存与 sendfile
+            boolean cacheable = !deployKey.endsWith(VersionedDirectory.LIVE_SUFFIX);
+            return previewFileSender.send(deployKey, resourcePath, getContentTypeWithCharset(resourcePath), cacheable,
+                    request, response);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -5,7 +5,9 @@ import com.erokin.mokaaicodemother.ai.AiCodeGeneratorServiceFactory;
 import com.erokin.mokaaicodemother.ai.model.HtmlCodeResult;
 import com.erokin.mokaaicodemother.ai.model.MultiFileCodeResult;
 import com.erokin.mokaaicodemother.core.parser.CodeParserExecutor;
+import com.erokin.mokaaicodemother.core.parser.StreamingCodeParser;
 import com.erokin.mokaaicodemother.core.saver.CodeFileSaverExecutor;
+import com.erokin.mokaaicodemother.core.saver.StreamingCodeFileSaver;
 import com.erokin.mokaaicodemother.exception.BusinessException;
 import com.erokin.mokaaicodemother.exception.ErrorCode;
 import com.erokin.mokaaicodemother.model.enums.CodeGenTypeEnum;
@@ -13,6 +15,7 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
 
 import java.io.File;
 
@@ -23,6 +26,9 @@ public class AiCodeGeneratorFacade {
     @Resource
     private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
+    @Resource
+    private Scheduler generationIoScheduler;
+
 
     /**
      * 通用流式代码处理方法
@@ -32,23 +38,25 @@ public class AiCodeGeneratorFacade {
      * @return 流式响应
      */
     private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId) {
-        StringBuilder codeBuilder = new StringBuilder();
-        return codeStream.doOnNext(chunk -> {
-            // 实时收集代码片段
-            codeBuilder.append(chunk);
+        // 代码块开启后即实时写入暂存版本目录，便于生成过程中预览
+        StreamingCodeFileSaver streamingCodeFileSaver = CodeFileSaverExecutor.createStreamingSaver(codeGenType, appId);
+        StreamingCodeParser streamingCodeParser = new StreamingCodeParser(streamingCodeFileSaver);
+        // 增量写文件、最终发布都是阻塞 IO，切到虚拟线程上执行，下游的阻塞回调同样在虚拟线程上
+        return codeStream.publishOn(generationIoScheduler).doOnNext(chunk -> {
+            // 实时增量解析代码片段
+            streamingCodeParser.feed(chunk);
         }).doOnComplete(() -> {
-            // 流式返回完成后保存代码
+            // 流式返回完成后写入最终代码并原子发布
             try {
-                String completeCode = codeBuilder.toString();
-                // 使用执行器解析代码
-                Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
-                // 使用执行器保存代码
-                File savedDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId);
+                // 使用执行器组装解析结果
+                Object parsedResult = CodeParserExecutor.executeParser(streamingCodeParser, codeGenType);
+                // 提交本次版本
+                File savedDir = streamingCodeFileSaver.commit(parsedResult);
                 log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
             } catch (Exception e) {
                 log.error("保存失败: {}", e.getMessage());
             }
-        });
+        }).doFinally(signalType -> streamingCodeFileSaver.abort());
     }
 
 
@@ -69,11 +77,11 @@ public class AiCodeGeneratorFacade {
         }
         return switch (codeGenTypeEnum) {
             case HTML -> {
-                HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(1,userMessage);
+                HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(appId, userMessage);
                 yield CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.HTML,appId);
             }
             case MULTI_FILE -> {
-                MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(userMessage);
+                MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(appId, userMessage);
                 yield CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.MULTI_FILE,appId);
             }
             default -> {
@@ -96,11 +104,11 @@ public class AiCodeGeneratorFacade {
         }
         return switch (codeGenTypeEnum) {
             case HTML -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
+                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(appId, userMessage);
                 yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
             }
             case MULTI_FILE -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
+                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(appId, userMessage);
                 yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
             }
             default -> {
@@ -0,0 +1,366 @@
+package com.erokin.mokaaicodemother.core.deploy;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.erokin.mokaaicodemother.core.saver.GzipPrecompressor;
+import com.erokin.mokaaicodemother.core.saver.VersionedDirectory;
+import com.erokin.mokaaicodemother.exception.BusinessException;
+import com.erokin.mokaaicodemother.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * 内容寻址的部署存储
+ * 文件按 SHA-256 只在 {root}/.objects/ 中保存一份，每次部署的版本目录由指向对象的硬链接组成，
+ * 再通过 {@link VersionedDirectory} 原子切换 {root}/{deployKey}；按部署清单增量比较，重新部署只写入变化的文件，
+ * 内容完全未变化时不发布新版本，磁盘占用不随部署次数线性增长。没有任何版本目录引用的对象（链接数为 1）定期清理；
+ * 文件系统不支持硬链接时不再使用对象目录，直接从源目录复制，已有对象全部清理
+ */
+@Slf4j
+public class DeployStore {
+
+    /**
+     * 对象存放目录
+     */
+    private static final String OBJECTS_DIR = ".objects";
+
+    /**
+     * 部署清单存放目录，每个 deployKey 一个清单，记录文件路径、哈希以及源文件大小与修改时间
+     */
+    private static final String MANIFESTS_DIR = ".manifests";
+
+    private static final String MANIFEST_SUFFIX = ".manifest";
+
+    /**
+     * 部署结果
+     *
+     * @param changed       是否发布了新版本（内容未变化时为 false）
+     * @param filesCopied   新写入的对象数（不支持硬链接时为复制的文件数）
+     * @param filesRemoved  相比上次部署删除的文件数
+     * @param bytesCopied   新写入的字节数
+     * @param durationNanos 部署耗时（纳秒）
+     */
+    public record DeployResult(boolean changed, int filesCopied, int filesRemoved, long bytesCopied,
+                               long durationNanos) {
+    }
+
+    private record ManifestEntry(String hash, long size, long lastModified) {
+    }
+
+    private record Manifest(String version, Map<String, ManifestEntry> files) {
+    }
+
+    private final Path rootDir;
+
+    private final Path objectsDir;
+
+    private final Path manifestsDir;
+
+    private final Map<String, Manifest> manifests = new ConcurrentHashMap<>();
+
+    // 同一 deployKey 的部署串行执行
+    private final Map<String, Object> deployLocks = new ConcurrentHashMap<>();
+
+    private final VersionedDirectory versions;
+
+    /**
+     * 两次清理无引用对象的最小间隔
+     */
+    private final long gcIntervalMillis;
+
+    // 部署持读锁，清理对象持写锁，避免清理掉正要被链接的对象
+    private final ReentrantReadWriteLock gcLock = new ReentrantReadWriteLock();
+
+    private volatile long lastGcMillis;
+
+    // 不支持硬链接时退化为复制
+    private volatile boolean hardLinkSupported = true;
+
+    public DeployStore(String rootDir, int keepVersions, Duration gcInterval) {
+        this.rootDir = Paths.get(rootDir).toAbsolutePath().normalize();
+        this.objectsDir = this.rootDir.resolve(OBJECTS_DIR);
+        this.manifestsDir = this.rootDir.resolve(MANIFESTS_DIR);
+        this.versions = new VersionedDirectory(rootDir, keepVersions);
+        this.gcIntervalMillis = gcInterval.toMillis();
+        this.lastGcMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 将源目录部署为 {root}/{deployKey}
+     * 与上次部署的清单比较，内容未变化时直接返回；否则只为新内容写入对象，其余文件链接已有对象，
+     * 已删除的文件不进入新版本，最后原子切换发布
+     *
+     * @param sourceDir 源目录（已发布的生成结果）
+     * @param deployKey 部署标识
+     * @return 部署结果
+     */
+    public DeployResult deploy(Path sourceDir, String deployKey) {
+        long startNanos = System.nanoTime();
+        DeployResult result;
+        synchronized (deployLocks.computeIfAbsent(deployKey, key -> new Object())) {
+            try {
+                Manifest previous = loadManifest(deployKey);
+                if (previous == null) {
+                    // 首次部署时补齐预压缩副本（旧版本生成的目录可能没有）
+                    GzipPrecompressor.compressDir(sourceDir);
+                }
+                Map<String, ManifestEntry> files = scan(sourceDir, previous);
+                if (previous != null && sameContent(previous.files(), files) && isPublished(deployKey, previous.version())) {
+                    if (!previous.files().equals(files)) {
+                        // 内容相同但源文件元信息变化，更新清单以便下次跳过哈希计算
+                        saveManifest(deployKey, new Manifest(previous.version(), files));
+                    }
+                    return new DeployResult(false, 0, 0, 0L, System.nanoTime() - startNanos);
+                }
+                result = publish(sourceDir, deployKey, previous, files, startNanos);
+            } catch (IOException e) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
+            }
+        }
+        gcIfDue();
+        return result;
+    }
+
+    private DeployResult publish(Path sourceDir, String deployKey, Manifest previous, Map<String, ManifestEntry> files,
+                                 long startNanos) throws IOException {
+        int filesCopied = 0;
+        long bytesCopied = 0;
+        Path stagingDir;
+        gcLock.readLock().lock();
+        try {
+            stagingDir = versions.createStaging(deployKey);
+            try {
+                for (Map.Entry<String, ManifestEntry> entry : files.entrySet()) {
+                    ManifestEntry manifestEntry = entry.getValue();
+                    Path target = stagingDir.resolve(entry.getKey());
+                    Files.createDirectories(target.getParent());
+                    if (!hardLinkSupported) {
+                        // 无法链接时对象只会多存一份，直接从源目录复制
+                        Files.copy(sourceDir.resolve(entry.getKey()), target);
+                        filesCopied++;
+                        bytesCopied += manifestEntry.size();
+                        continue;
+                    }
+                    Path object = resolveObject(manifestEntry.hash());
+                    if (!Files.isRegularFile(object)) {
+                        storeObject(sourceDir.resolve(entry.getKey()), object);
+                        filesCopied++;
+                        bytesCopied += manifestEntry.size();
+                    }
+                    linkObject(object, target);
+                }
+            } catch (IOException e) {
+                versions.discard(deployKey, stagingDir);
+                throw e;
+            }
+        } finally {
+            gcLock.readLock().unlock();
+        }
+        Path versionDir = versions.publish(deployKey, stagingDir);
+        saveManifest(deployKey, new Manifest(versionDir.getFileName().toString(), files));
+        int filesRemoved = 0;
+        if (previous != null) {
+            for (String path : previous.files().keySet()) {
+                if (!files.containsKey(path)) {
+                    filesRemoved++;
+                }
+            }
+        }
+        return new DeployResult(true, filesCopied, filesRemoved, bytesCopied, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 清理没有被任何版本目录引用的对象
+     * 不支持硬链接时版本目录中都是副本，对象不再被使用，全部清理
+     *
+     * @return 删除的对象数
+     */
+    public int gc() {
+        if (!Files.isDirectory(objectsDir)) {
+            return 0;
+        }
+        int removed = 0;
+        gcLock.writeLock().lock();
+        try {
+            for (Path object : listFiles(objectsDir)) {
+                if (!hardLinkSupported || linkCount(object) == 1) {
+                    Files.deleteIfExists(object);
+                    removed++;
+                }
+            }
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            log.warn("清理部署对象失败: {}", e.getMessage());
+        } finally {
+            lastGcMillis = System.currentTimeMillis();
+            gcLock.writeLock().unlock();
+        }
+        if (removed > 0) {
+            log.info("已清理 {} 个无引用的部署对象", removed);
+        }
+        return removed;
+    }
+
+    private void gcIfDue() {
+        if (System.currentTimeMillis() - lastGcMillis >= gcIntervalMillis) {
+            gc();
+        }
+    }
+
+    private Path resolveObject(String hash) {
+        return objectsDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * 写入对象：先写临时文件再原子重命名，并发部署同一内容时只会留下完整的对象
+     */
+    private void storeObject(Path file, Path object) throws IOException {
+        Files.createDirectories(object.getParent());
+        Path tempFile = object.resolveSibling("." + object.getFileName() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        try {
+            Files.copy(file, tempFile);
+            Files.move(tempFile, object, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 扫描源目录生成清单，大小与修改时间都未变的文件沿用上次的哈希，不再读取内容
+     */
+    private Map<String, ManifestEntry> scan(Path sourceDir, Manifest previous) throws IOException {
+        Map<String, ManifestEntry> files = new TreeMap<>();
+        for (Path file : listFiles(sourceDir)) {
+            String path = sourceDir.relativize(file).toString().replace('\\', '/');
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            ManifestEntry previousEntry = previous == null ? null : previous.files().get(path);
+            String hash = previousEntry != null && previousEntry.size() == size && previousEntry.lastModified() == lastModified
+                    ? previousEntry.hash() : DigestUtil.sha256Hex(file.toFile());
+            files.put(path, new ManifestEntry(hash, size, lastModified));
+        }
+        return files;
+    }
+
+    private static boolean sameContent(Map<String, ManifestEntry> previous, Map<String, ManifestEntry> current) {
+        if (!previous.keySet().equals(current.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, ManifestEntry> entry : current.entrySet()) {
+            if (!entry.getValue().hash().equals(previous.get(entry.getKey()).hash())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {deployKey} 当前是否指向清单记录的版本（回滚或手工改动后需要重新发布）
+     */
+    private boolean isPublished(String deployKey, String version) {
+        Path link = rootDir.resolve(deployKey);
+        try {
+            return Files.isSymbolicLink(link)
+                    ? Files.readSymbolicLink(link).getFileName().toString().equals(version)
+                    : Files.isDirectory(link);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 读取上次部署的清单，先查内存
+     */
+    private Manifest loadManifest(String deployKey) {
+        Manifest manifest = manifests.get(deployKey);
+        if (manifest != null) {
+            return manifest;
+        }
+        Path manifestFile = manifestsDir.resolve(deployKey + MANIFEST_SUFFIX);
+        if (!Files.isRegularFile(manifestFile)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(manifestFile);
+            Map<String, ManifestEntry> files = new TreeMap<>();
+            for (String line : lines.subList(1, lines.size())) {
+                String[] parts = line.split("\t", 4);
+                files.put(parts[3], new ManifestEntry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+            }
+            manifest = new Manifest(lines.getFirst(), files);
+        } catch (IOException | RuntimeException e) {
+            // 清单损坏时按首次部署处理
+            log.warn("读取部署清单失败: {}, error: {}", deployKey, e.getMessage());
+            return null;
+        }
+        manifests.put(deployKey, manifest);
+        return manifest;
+    }
+
+    private void saveManifest(String deployKey, Manifest manifest) throws IOException {
+        StringBuilder content = new StringBuilder(manifest.version()).append('\n');
+        manifest.files().forEach((path, entry) -> content.append(entry.hash()).append('\t')
+                .append(entry.size()).append('\t')
+                .append(entry.lastModified()).append('\t')
+                .append(path).append('\n'));
+        Files.createDirectories(manifestsDir);
+        Path manifestFile = manifestsDir.resolve(deployKey + MANIFEST_SUFFIX);
+        Path tempFile = manifestsDir.resolve("." + deployKey + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        try {
+            Files.writeString(tempFile, content);
+            Files.move(tempFile, manifestFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        manifests.put(deployKey, manifest);
+    }
+
+    private void linkObject(Path object, Path target) throws IOException {
+        if (hardLinkSupported) {
+            try {
+                Files.createLink(target, object);
+                return;
+            } catch (FileAlreadyExistsException | NoSuchFileException e) {
+                throw e;
+            } catch (UnsupportedOperationException e) {
+                disableHardLinks(e.getMessage());
+            } catch (FileSystemException e) {
+                if (StrUtil.containsIgnoreCase(e.getReason(), "cross-device")) {
+                    disableHardLinks(e.getMessage());
+                } else {
+                    // 链接数过多、权限、空间不足等只影响单个文件，仅该文件改为复制
+                    log.warn("创建硬链接失败，该文件改为复制: {}, error: {}", target, e.getMessage());
+                }
+            }
+        }
+        Files.copy(object, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void disableHardLinks(String reason) {
+        hardLinkSupported = false;
+        log.warn("当前文件系统不支持硬链接，部署退化为复制: {}", reason);
+    }
+
+    private static int linkCount(Path file) throws IOException {
+        return (Integer) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            return stream.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("."))
+                    .toList();
+        }
+    }
+}
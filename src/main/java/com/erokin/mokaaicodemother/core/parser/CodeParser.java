@@ -11,4 +11,11 @@ public interface CodeParser<T> {
      * @return
      */
     T parserCode(String codeContent);
+
+    /**
+     * 从已消费完输出的流式解析器中组装结果（无需再次扫描完整内容）
+     * @param streamingCodeParser 流式解析器
+     * @return
+     */
+    T parserCode(StreamingCodeParser streamingCodeParser);
 }
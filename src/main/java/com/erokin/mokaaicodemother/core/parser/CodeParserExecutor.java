@@ -17,5 +17,18 @@ public class CodeParserExecutor {
         };
     }
 
+    /**
+     * 从流式解析器中组装结果
+     * @param streamingCodeParser 已消费完流式输出的解析器
+     * @param codeGenTypeEnum 代码生成类型
+     * @return
+     */
+    public static Object executeParser(StreamingCodeParser streamingCodeParser, CodeGenTypeEnum codeGenTypeEnum){
+        return switch(codeGenTypeEnum){
+            case HTML -> htmlCodeParser.parserCode(streamingCodeParser);
+            case MULTI_FILE -> mutiFileCodeParser.parserCode(streamingCodeParser);
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR,"不支持的代码生成类型："+codeGenTypeEnum);
+        };
+    }
 
 }
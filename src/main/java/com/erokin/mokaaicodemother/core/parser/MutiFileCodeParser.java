@@ -2,14 +2,7 @@ package com.erokin.mokaaicodemother.core.parser;
 
 import com.erokin.mokaaicodemother.ai.model.MultiFileCodeResult;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class MutiFileCodeParser implements CodeParser<MultiFileCodeResult>{
-    // 提取代码正则
-    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CSS_CODE_PATTERN = Pattern.compile("```css\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-    private static final Pattern JS_CODE_PATTERN = Pattern.compile("```(?:js|javascript)\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
 
     /**
      * 解析多文件代码
@@ -18,11 +11,23 @@ public class MutiFileCodeParser implements CodeParser<MultiFileCodeResult>{
      */
     @Override
     public MultiFileCodeResult parserCode(String codeContent) {
+        StreamingCodeParser streamingCodeParser = new StreamingCodeParser();
+        streamingCodeParser.feed(codeContent);
+        return parserCode(streamingCodeParser);
+    }
+
+    /**
+     * 从流式解析器中组装多文件代码
+     * @param streamingCodeParser
+     * @return
+     */
+    @Override
+    public MultiFileCodeResult parserCode(StreamingCodeParser streamingCodeParser) {
         MultiFileCodeResult result = new MultiFileCodeResult();
         //提取多文件代码
-        String htmlCode = extractCodeByPattern(codeContent, HTML_CODE_PATTERN);
-        String cssCode = extractCodeByPattern(codeContent, CSS_CODE_PATTERN);
-        String jsCode = extractCodeByPattern(codeContent, JS_CODE_PATTERN);
+        String htmlCode = streamingCodeParser.getCode(StreamingCodeParser.BlockType.HTML);
+        String cssCode = streamingCodeParser.getCode(StreamingCodeParser.BlockType.CSS);
+        String jsCode = streamingCodeParser.getCode(StreamingCodeParser.BlockType.JS);
 
         // 设置HTML代码
         if (htmlCode != null && !htmlCode.trim().isEmpty()) {
@@ -38,17 +43,4 @@ public class MutiFileCodeParser implements CodeParser<MultiFileCodeResult>{
         }
         return result;
     }
-
-    /**
-     * 根据正则表达式，提取代码
-     * @param content
-     * @param pattern
-     */
-    private String extractCodeByPattern(String content, Pattern pattern) {
-        Matcher matcher = pattern.matcher(content);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
-    }
 }
@@ -0,0 +1,279 @@
+package com.erokin.mokaaicodemother.core.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式代码块解析器（状态机）
+ * 按到达顺序逐段消费 AI 输出，增量识别 ```html / ```css / ```js 代码围栏，
+ * 代码块闭合时立即产出完整片段，整个响应只扫描一遍
+ */
+public class StreamingCodeParser {
+
+    /**
+     * 围栏标记
+     */
+    private static final String FENCE = "```";
+
+    /**
+     * 围栏语言标识的最大长度，超过则视为普通文本
+     */
+    private static final int MAX_INFO_LENGTH = 32;
+
+    /**
+     * 代码块类型
+     */
+    public enum BlockType {
+        HTML, CSS, JS, OTHER
+    }
+
+    /**
+     * 已闭合的代码片段
+     *
+     * @param type    代码块类型
+     * @param content 代码块内容（不含围栏）
+     */
+    public record CodeSegment(BlockType type, String content) {
+    }
+
+    /**
+     * 代码块事件监听器，只会收到每种类型第一个代码块的事件
+     */
+    public interface BlockListener {
+
+        /**
+         * 代码块开启（已读完围栏语言标识）
+         */
+        default void onBlockStart(BlockType type) {
+        }
+
+        /**
+         * 代码块内容增量
+         */
+        default void onBlockContent(BlockType type, CharSequence content) {
+        }
+
+        /**
+         * 代码块闭合
+         */
+        default void onBlockEnd(CodeSegment segment) {
+        }
+    }
+
+    /**
+     * 解析状态：普通文本 / 围栏语言标识 / 代码块内容
+     */
+    private enum State {
+        TEXT, FENCE_INFO, CODE
+    }
+
+    private State state = State.TEXT;
+
+    // 尚未确定归属的连续反引号数量（可能跨越多个片段）
+    private int pendingBackticks;
+
+    // 普通文本中当前位置是否位于行首（之前只有缩进空白）
+    private boolean atLineStart = true;
+
+    // 普通文本中这串反引号是否从行首开始，只有行首的围栏才能开启代码块
+    private boolean backticksAtLineStart;
+
+    private final StringBuilder infoBuilder = new StringBuilder();
+
+    private final StringBuilder blockBuilder = new StringBuilder();
+
+    private BlockType currentType;
+
+    // 当前代码块是否需要通知监听器
+    private boolean currentTracked;
+
+    private final BlockListener listener;
+
+    // 原始内容，用于没有代码块时的兜底
+    private final StringBuilder rawBuilder = new StringBuilder();
+
+    // 每种类型只保留第一个闭合的代码块，与正则解析的语义一致
+    private final Map<BlockType, String> completedBlocks = new EnumMap<>(BlockType.class);
+
+    public StreamingCodeParser() {
+        this(null);
+    }
+
+    public StreamingCodeParser(BlockListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 消费一段流式输出
+     *
+     * @param chunk 代码片段
+     * @return 本次片段中闭合的代码块
+     */
+    public List<CodeSegment> feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return Collections.emptyList();
+        }
+        rawBuilder.append(chunk);
+        List<CodeSegment> segments = new ArrayList<>(1);
+        int length = chunk.length();
+        int i = 0;
+        while (i < length) {
+            switch (state) {
+                case TEXT -> i = consumeText(chunk, i);
+                case FENCE_INFO -> i = consumeFenceInfo(chunk, i);
+                case CODE -> i = consumeCode(chunk, i, segments);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * 获取某类型第一个闭合的代码块
+     *
+     * @param type 代码块类型
+     * @return 代码内容，不存在时返回 null
+     */
+    public String getCode(BlockType type) {
+        return completedBlocks.get(type);
+    }
+
+    /**
+     * 获取已消费的完整原始内容
+     */
+    public String getRawContent() {
+        return rawBuilder.toString();
+    }
+
+    /**
+     * 当前是否处于代码块内部
+     */
+    public boolean isInBlock() {
+        return state == State.CODE;
+    }
+
+    /**
+     * 在普通文本中寻找开启围栏（必须位于行首，行内的 ``` 视为普通文本）
+     */
+    private int consumeText(String chunk, int i) {
+        char c = chunk.charAt(i);
+        if (c == '`') {
+            if (pendingBackticks == 0) {
+                backticksAtLineStart = atLineStart;
+            }
+            pendingBackticks++;
+            atLineStart = false;
+            return i + 1;
+        }
+        if (pendingBackticks >= FENCE.length() && backticksAtLineStart) {
+            state = State.FENCE_INFO;
+            infoBuilder.setLength(0);
+            pendingBackticks = 0;
+            // 当前字符属于语言标识，交给下一个状态处理
+            return i;
+        }
+        pendingBackticks = 0;
+        atLineStart = c == '\n' || (atLineStart && (c == ' ' || c == '\t'));
+        return i + 1;
+    }
+
+    /**
+     * 读取围栏后的语言标识，直到换行
+     */
+    private int consumeFenceInfo(String chunk, int i) {
+        char c = chunk.charAt(i);
+        if (c == '\n') {
+            currentType = resolveType(infoBuilder.toString());
+            currentTracked = currentType != BlockType.OTHER && !completedBlocks.containsKey(currentType);
+            blockBuilder.setLength(0);
+            state = State.CODE;
+            if (currentTracked && listener != null) {
+                listener.onBlockStart(currentType);
+            }
+            return i + 1;
+        }
+        if (c == '`' || infoBuilder.length() >= MAX_INFO_LENGTH) {
+            // 行内代码等情况，不是代码块
+            state = State.TEXT;
+            atLineStart = false;
+            return i;
+        }
+        infoBuilder.append(c);
+        return i + 1;
+    }
+
+    /**
+     * 收集代码块内容，直到遇到闭合围栏
+     */
+    private int consumeCode(String chunk, int i, List<CodeSegment> segments) {
+        int length = chunk.length();
+        while (i < length) {
+            char c = chunk.charAt(i);
+            if (c == '`') {
+                pendingBackticks++;
+                i++;
+                if (pendingBackticks == FENCE.length()) {
+                    closeBlock(segments);
+                    return i;
+                }
+                continue;
+            }
+            flushPendingBackticks();
+            // 批量追加到下一个反引号之前的内容
+            int next = chunk.indexOf('`', i);
+            int end = next < 0 ? length : next;
+            blockBuilder.append(chunk, i, end);
+            notifyContent(chunk, i, end);
+            i = end;
+        }
+        return i;
+    }
+
+    private void flushPendingBackticks() {
+        if (pendingBackticks == 0) {
+            return;
+        }
+        String backticks = "`".repeat(pendingBackticks);
+        blockBuilder.append(backticks);
+        notifyContent(backticks, 0, backticks.length());
+        pendingBackticks = 0;
+    }
+
+    private void notifyContent(String content, int start, int end) {
+        if (currentTracked && listener != null && start < end) {
+            listener.onBlockContent(currentType, content.subSequence(start, end));
+        }
+    }
+
+    private void closeBlock(List<CodeSegment> segments) {
+        if (currentTracked) {
+            CodeSegment segment = new CodeSegment(currentType, blockBuilder.toString());
+            completedBlocks.put(currentType, segment.content());
+            segments.add(segment);
+            if (listener != null) {
+                listener.onBlockEnd(segment);
+            }
+        }
+        blockBuilder.setLength(0);
+        pendingBackticks = 0;
+        currentType = null;
+        currentTracked = false;
+        state = State.TEXT;
+        atLineStart = false;
+    }
+
+    /**
+     * 根据围栏语言标识确定代码块类型
+     */
+    private static BlockType resolveType(String info) {
+        String lang = info.trim().toLowerCase();
+        return switch (lang) {
+            case "html" -> BlockType.HTML;
+            case "css" -> BlockType.CSS;
+            case "js", "javascript" -> BlockType.JS;
+            default -> BlockType.OTHER;
+        };
+    }
+}
@@ -31,5 +31,34 @@ public class CodeFileSaverExecutor {
         };
     }
 
+    /**
+     * 执行保存器，写入已有的暂存版本目录并发布
+     * @param codeResult
+     * @param codeGenTypeEnum
+     * @param appId
+     * @param stagingDirPath 暂存版本目录
+     * @return
+     */
+    public static File executeSaver(Object codeResult,
+                                    CodeGenTypeEnum codeGenTypeEnum,
+                                    Long appId,
+                                    String stagingDirPath){
+
+        return switch (codeGenTypeEnum){
+            case HTML -> htmlCodeFileSaverTemplate.saveCode((HtmlCodeResult) codeResult, appId, stagingDirPath);
+            case MULTI_FILE -> multFileCodeFileSaverTemplate.saveCode((MultiFileCodeResult) codeResult, appId, stagingDirPath);
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR,"不支持的代码生成类型："+codeGenTypeEnum);
+        };
+    }
+
+    /**
+     * 创建流式保存器（生成过程中实时写入文件）
+     * @param codeGenTypeEnum
+     * @param appId
+     * @return
+     */
+    public static StreamingCodeFileSaver createStreamingSaver(CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+        return new StreamingCodeFileSaver(codeGenTypeEnum, appId);
+    }
 
 }
@@ -9,11 +9,30 @@ import com.erokin.mokaaicodemother.exception.ErrorCode;
 import com.erokin.mokaaicodemother.model.enums.CodeGenTypeEnum;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
 
 public abstract class CodeFileSaverTemplate<T> {
     // 文件存储路径
     private static final String FILE_SAVE_ROOT_DIR = AppConstant.CODE_OUTPUT_ROOT_DIR;
 
+    // 输出目录版本管理（流式保存与模板保存共用）
+    static final VersionedDirectory OUTPUT_VERSIONS =
+            new VersionedDirectory(FILE_SAVE_ROOT_DIR, AppConstant.CODE_OUTPUT_KEEP_VERSIONS);
+
+    /**
+     * 注册输出目录发布监听器（参数为目录名 bizType_appId），用于失效静态资源缓存等
+     */
+    public static void addPublishListener(Consumer<String> listener) {
+        OUTPUT_VERSIONS.addPublishListener(listener);
+    }
+
     /**
      * 保存代码文件
      * @param result 代码结果对象
@@ -21,15 +40,37 @@ public abstract class CodeFileSaverTemplate<T> {
      * @return
      */
     public final File saveCode(T result,Long AppId){
-        //1.验证参数
-        validateInput(result);
-        //2.构建唯一目录
+        //1.构建本次保存的暂存版本目录
         String baseDirPath = buildUniqueDir(AppId);
-        //3.保存文件(具体交给子类实现)
-        saveFiles(result, baseDirPath);
-        //4.返回保存后的目录对象
-        return new File(baseDirPath);
+        //2.保存文件并发布
+        return saveCode(result, AppId, baseDirPath);
+    }
 
+    /**
+     * 将代码写入已有的暂存版本目录并发布（流式保存时复用实时写入的目录）
+     * @param result 代码结果对象
+     * @param appId
+     * @param stagingDirPath 暂存版本目录
+     * @return 发布后的目录对象
+     */
+    public final File saveCode(T result, Long appId, String stagingDirPath) {
+        String dirName = buildDirName(getCodeType(), appId);
+        Path stagingDir = Paths.get(stagingDirPath);
+        try {
+            //1.验证参数
+            validateInput(result);
+            //2.保存文件(具体交给子类实现)
+            saveFiles(result, stagingDirPath);
+        } catch (RuntimeException e) {
+            OUTPUT_VERSIONS.discard(dirName, stagingDir);
+            throw e;
+        }
+        //3.生成预压缩副本
+        GzipPrecompressor.compressDir(stagingDir);
+        //4.原子切换到新版本
+        OUTPUT_VERSIONS.publish(dirName, stagingDir);
+        //5.返回保存后的目录对象
+        return new File(buildOutputDirPath(getCodeType(), appId));
     }
 
 
@@ -45,31 +86,53 @@ public abstract class CodeFileSaverTemplate<T> {
 
 
     /**
-     * 构建唯一目录路径：tmp/code_output/bizType_雪花ID
+     * 构建本次保存的暂存版本目录：tmp/code_output/.versions/bizType_appId/版本号.staging
      * 不由子类实现
      */
      protected final String buildUniqueDir(Long appId) {
-         if (appId == null) {
-             throw new BusinessException(ErrorCode.SYSTEM_ERROR,"appId不能为空");
-         }
-         String codeType = getCodeType().getValue();
-         String uniqueDirName = StrUtil.format("{}_{}", codeType, appId);
-        String dirPath = FILE_SAVE_ROOT_DIR + File.separator + uniqueDirName;
-        FileUtil.mkdir(dirPath);
-        return dirPath;
+        return OUTPUT_VERSIONS.createStaging(buildDirName(getCodeType(), appId)).toString();
+    }
+
+    /**
+     * 获取发布后的输出目录路径：tmp/code_output/bizType_appId（指向当前版本的链接）
+     */
+    static String buildOutputDirPath(CodeGenTypeEnum codeGenType, Long appId) {
+        return FILE_SAVE_ROOT_DIR + File.separator + buildDirName(codeGenType, appId);
+    }
+
+    /**
+     * 获取输出目录名：bizType_appId（流式保存与模板保存共用）
+     */
+    static String buildDirName(CodeGenTypeEnum codeGenType, Long appId) {
+        if (appId == null) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR,"appId不能为空");
+        }
+        return StrUtil.format("{}_{}", codeGenType.getValue(), appId);
     }
 
 
 
     /**
      * 写入单个文件的工具
+     * 先写临时文件再原子重命名，读取方要么看到旧文件，要么看到完整的新文件
      * @param baseDirPath
      * @param fileName
      * @param content
      */
     protected final void writeToFile(String baseDirPath, String fileName, String content) {
-        String filePath = baseDirPath + File.separator + fileName;
-        FileUtil.writeUtf8String(content, filePath);
+        Path target = Paths.get(baseDirPath, fileName);
+        Path tempFile = Paths.get(baseDirPath, StrUtil.format(".{}.{}.tmp", fileName, IdUtil.fastSimpleUUID()));
+        try {
+            Files.writeString(tempFile, StrUtil.nullToEmpty(content), StandardCharsets.UTF_8);
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            FileUtil.del(tempFile);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "写入文件失败：" + fileName);
+        }
     }
 
 
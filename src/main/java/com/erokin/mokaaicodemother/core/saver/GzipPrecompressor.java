@@ -0,0 +1,101 @@
+package com.erokin.mokaaicodemother.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 静态文件预压缩
+ * 站点写入完成后为文本类文件生成一次 .gz 副本，访问时按 Accept-Encoding 直接返回，无需每次请求实时压缩
+ */
+@Slf4j
+public final class GzipPrecompressor {
+
+    /**
+     * 预压缩文件后缀
+     */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * 需要压缩的文件类型
+     */
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of("html", "htm", "css", "js", "json", "svg", "txt", "xml");
+
+    /**
+     * 小于该大小的文件压缩收益不大，不生成副本
+     */
+    private static final long MIN_SIZE = 256;
+
+    private GzipPrecompressor() {
+    }
+
+    /**
+     * 是否为可压缩的文件类型
+     */
+    public static boolean isCompressible(String fileName) {
+        return COMPRESSIBLE_EXTENSIONS.contains(FileUtil.extName(fileName).toLowerCase());
+    }
+
+    /**
+     * 为目录下所有可压缩文件生成 .gz 副本（已是最新的副本跳过）
+     *
+     * @param dir 站点目录
+     */
+    public static void compressDir(Path dir) {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(dir)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(path -> isCompressible(path.getFileName().toString()))
+                    .toList();
+        } catch (IOException e) {
+            log.warn("遍历目录失败，跳过预压缩: {}, error: {}", dir, e.getMessage());
+            return;
+        }
+        for (Path file : files) {
+            compressFile(file);
+        }
+    }
+
+    private static void compressFile(Path file) {
+        Path gzipFile = file.resolveSibling(file.getFileName() + GZIP_SUFFIX);
+        Path tempFile = file.resolveSibling("." + file.getFileName() + GZIP_SUFFIX + ".tmp");
+        try {
+            long size = Files.size(file);
+            if (size < MIN_SIZE) {
+                Files.deleteIfExists(gzipFile);
+                return;
+            }
+            if (Files.isRegularFile(gzipFile)
+                    && Files.getLastModifiedTime(gzipFile).compareTo(Files.getLastModifiedTime(file)) >= 0) {
+                return;
+            }
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempFile)) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                Files.copy(file, out);
+            }
+            // 压缩后没有变小就不保留副本
+            if (Files.size(tempFile) >= size) {
+                Files.deleteIfExists(tempFile);
+                Files.deleteIfExists(gzipFile);
+                return;
+            }
+            Files.move(tempFile, gzipFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            FileUtil.del(tempFile);
+            log.warn("预压缩文件失败: {}, error: {}", file, e.getMessage());
+        }
+    }
+}
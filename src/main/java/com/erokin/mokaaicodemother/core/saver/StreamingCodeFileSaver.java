@@ -0,0 +1,173 @@
+package com.erokin.mokaaicodemother.core.saver;
+
+import com.erokin.mokaaicodemother.core.parser.StreamingCodeParser;
+import com.erokin.mokaaicodemother.model.enums.CodeGenTypeEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 流式代码保存器
+ * 代码块围栏一开启就在本次的暂存版本目录中打开对应文件，随着流式输出逐段追加写入，
+ * 生成过程中可通过 {bizType_appId}.live 实时预览；流结束后由 {@link CodeFileSaverTemplate}
+ * 写入最终内容并原子发布，出错或取消时丢弃暂存目录，已发布的版本不受影响
+ */
+@Slf4j
+public class StreamingCodeFileSaver implements StreamingCodeParser.BlockListener, Closeable {
+
+    private final CodeGenTypeEnum codeGenType;
+
+    private final Long appId;
+
+    private final String dirName;
+
+    // 暂存版本目录，第一个代码块开启时才创建
+    private Path stagingDir;
+
+    private boolean finished;
+
+    private final Map<StreamingCodeParser.BlockType, FileChannel> channels = new EnumMap<>(StreamingCodeParser.BlockType.class);
+
+    // 片段末尾被截断的高位代理字符，留到下一段再编码
+    private final Map<StreamingCodeParser.BlockType, Character> pendingHighSurrogates = new EnumMap<>(StreamingCodeParser.BlockType.class);
+
+    public StreamingCodeFileSaver(CodeGenTypeEnum codeGenType, Long appId) {
+        this.codeGenType = codeGenType;
+        this.appId = appId;
+        this.dirName = CodeFileSaverTemplate.buildDirName(codeGenType, appId);
+    }
+
+    @Override
+    public void onBlockStart(StreamingCodeParser.BlockType type) {
+        String fileName = resolveFileName(type);
+        if (fileName == null) {
+            return;
+        }
+        Path filePath = null;
+        try {
+            filePath = ensureStagingDir().resolve(fileName);
+            FileChannel channel = FileChannel.open(filePath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channels.put(type, channel);
+        } catch (IOException | RuntimeException e) {
+            // 实时预览只是尽力而为，最终内容仍会在流结束后提交
+            log.warn("打开流式写入文件失败: {}, error: {}", filePath, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onBlockContent(StreamingCodeParser.BlockType type, CharSequence content) {
+        FileChannel channel = channels.get(type);
+        if (channel == null) {
+            return;
+        }
+        StringBuilder text = new StringBuilder(content.length() + 1);
+        Character pending = pendingHighSurrogates.remove(type);
+        if (pending != null) {
+            text.append(pending.charValue());
+        }
+        text.append(content);
+        int last = text.length() - 1;
+        if (Character.isHighSurrogate(text.charAt(last))) {
+            pendingHighSurrogates.put(type, text.charAt(last));
+            text.setLength(last);
+        }
+        try {
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            log.warn("流式写入文件失败: type={}, error: {}", type, e.getMessage());
+            closeChannel(type);
+        }
+    }
+
+    @Override
+    public void onBlockEnd(StreamingCodeParser.CodeSegment segment) {
+        closeChannel(segment.type());
+    }
+
+    /**
+     * 写入最终内容并发布本次版本
+     *
+     * @param parsedResult 解析后的代码结果
+     * @return 发布后的目录
+     */
+    public File commit(Object parsedResult) {
+        close();
+        finished = true;
+        String stagingDirPath = ensureStagingDir().toString();
+        return CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId, stagingDirPath);
+    }
+
+    /**
+     * 放弃本次保存（出错或取消时调用，已提交后调用无影响）
+     */
+    public void abort() {
+        close();
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (stagingDir != null) {
+            CodeFileSaverTemplate.OUTPUT_VERSIONS.discard(dirName, stagingDir);
+        }
+    }
+
+    /**
+     * 关闭所有仍在写入的文件（可重复调用）
+     */
+    @Override
+    public void close() {
+        for (StreamingCodeParser.BlockType type : channels.keySet().toArray(new StreamingCodeParser.BlockType[0])) {
+            closeChannel(type);
+        }
+    }
+
+    private Path ensureStagingDir() {
+        if (stagingDir == null) {
+            stagingDir = CodeFileSaverTemplate.OUTPUT_VERSIONS.createStaging(dirName);
+            CodeFileSaverTemplate.OUTPUT_VERSIONS.linkLive(dirName, stagingDir);
+        }
+        return stagingDir;
+    }
+
+    private void closeChannel(StreamingCodeParser.BlockType type) {
+        pendingHighSurrogates.remove(type);
+        FileChannel channel = channels.remove(type);
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("关闭流式写入文件失败: type={}, error: {}", type, e.getMessage());
+        }
+    }
+
+    /**
+     * 代码块类型对应的文件名，与各保存模板保持一致
+     */
+    private String resolveFileName(StreamingCodeParser.BlockType type) {
+        return switch (codeGenType) {
+            case HTML -> type == StreamingCodeParser.BlockType.HTML ? "index.html" : null;
+            case MULTI_FILE -> switch (type) {
+                case HTML -> "index.html";
+                case CSS -> "style.css";
+                case JS -> "script.js";
+                default -> null;
+            };
+        };
+    }
+}
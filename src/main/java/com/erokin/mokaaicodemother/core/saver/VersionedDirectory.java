@@ -0,0 +1,273 @@
+package com.erokin.mokaaicodemother.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import com.erokin.mokaaicodemother.exception.BusinessException;
+import com.erokin.mokaaicodemother.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 版本化目录
+ * 每次保存写入 {root}/.versions/{name}/ 下的新暂存目录，完成后通过符号链接 {root}/{name} 原子切换发布，
+ * 读取方始终看到某个完整版本，不会读到写了一半的文件；保留最近若干个版本，回滚只需切换链接
+ */
+@Slf4j
+public class VersionedDirectory {
+
+    /**
+     * 版本存放目录
+     */
+    private static final String VERSIONS_DIR = ".versions";
+
+    /**
+     * 暂存目录后缀，发布时去掉
+     */
+    private static final String STAGING_SUFFIX = ".staging";
+
+    /**
+     * 实时预览链接后缀：{name}.live 指向正在写入的暂存目录
+     */
+    public static final String LIVE_SUFFIX = ".live";
+
+    /**
+     * 超过该时长仍未发布的暂存目录视为残留，清理时删除
+     */
+    private static final long STALE_STAGING_MILLIS = Duration.ofDays(1).toMillis();
+
+    private final Path rootDir;
+
+    private final int keepVersions;
+
+    // 不支持符号链接时（如无权限的 Windows）退化为直接替换目录
+    private volatile boolean symlinkSupported = true;
+
+    // 发布或回滚后通知的监听器，参数为目录名
+    private final List<Consumer<String>> publishListeners = new CopyOnWriteArrayList<>();
+
+    public VersionedDirectory(String rootDir, int keepVersions) {
+        this.rootDir = Paths.get(rootDir).toAbsolutePath();
+        this.keepVersions = Math.max(1, keepVersions);
+    }
+
+    /**
+     * 注册发布监听器，{name} 指向的内容变化（发布、回滚）后回调
+     */
+    public void addPublishListener(Consumer<String> listener) {
+        publishListeners.add(listener);
+    }
+
+    /**
+     * 创建一个新的暂存版本目录
+     *
+     * @param name 目录名，如 HTML_1
+     * @return 暂存目录
+     */
+    public Path createStaging(String name) {
+        String version = StrUtil.format("{}-{}", String.format("%013d", System.currentTimeMillis()),
+                RandomUtil.randomString(6));
+        Path stagingDir = getVersionsDir(name).resolve(version + STAGING_SUFFIX);
+        try {
+            Files.createDirectories(stagingDir);
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "创建版本目录失败：" + e.getMessage());
+        }
+        return stagingDir;
+    }
+
+    /**
+     * 将暂存目录暴露为 {name}.live，供生成过程中实时预览
+     */
+    public void linkLive(String name, Path stagingDir) {
+        if (!symlinkSupported) {
+            return;
+        }
+        try {
+            swapLink(rootDir.resolve(name + LIVE_SUFFIX), stagingDir);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("创建实时预览链接失败: {}, error: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 发布暂存目录：重命名为正式版本，原子切换 {name} 链接，并清理旧版本
+     *
+     * @param name       目录名
+     * @param stagingDir 暂存目录
+     * @return 发布后的版本目录
+     */
+    public synchronized Path publish(String name, Path stagingDir) {
+        Path link = rootDir.resolve(name);
+        try {
+            String stagingName = stagingDir.getFileName().toString();
+            Path versionDir = stagingDir.resolveSibling(StrUtil.removeSuffix(stagingName, STAGING_SUFFIX));
+            Files.move(stagingDir, versionDir, StandardCopyOption.ATOMIC_MOVE);
+            removeLiveLink(name, stagingDir);
+            if (symlinkSupported) {
+                try {
+                    migrateLegacyDir(name, link);
+                    swapLink(link, versionDir);
+                    prune(name, versionDir);
+                    firePublished(name);
+                    return versionDir;
+                } catch (UnsupportedOperationException | FileSystemException e) {
+                    symlinkSupported = false;
+                    log.warn("当前文件系统不支持符号链接，版本目录退化为直接替换: {}", e.getMessage());
+                }
+            }
+            // 退化方案：直接替换目录（非原子）
+            FileUtil.del(link);
+            Files.move(versionDir, link);
+            firePublished(name);
+            return link;
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "发布版本目录失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 丢弃未发布的暂存目录
+     */
+    public void discard(String name, Path stagingDir) {
+        removeLiveLink(name, stagingDir);
+        FileUtil.del(stagingDir);
+    }
+
+    /**
+     * 回滚到上一个已发布版本
+     *
+     * @param name 目录名
+     * @return 是否回滚成功
+     */
+    public synchronized boolean rollback(String name) {
+        Path link = rootDir.resolve(name);
+        if (!Files.isSymbolicLink(link)) {
+            return false;
+        }
+        try {
+            String current = link.toRealPath().getFileName().toString();
+            for (Path version : listVersions(name)) {
+                if (version.getFileName().toString().compareTo(current) < 0) {
+                    swapLink(link, version);
+                    firePublished(name);
+                    log.info("目录 {} 已回滚到版本 {}", name, version.getFileName());
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            log.error("回滚版本目录失败: {}, error: {}", name, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * 列出已发布的版本（新 -> 旧）
+     */
+    public List<Path> listVersions(String name) {
+        Path versionsDir = getVersionsDir(name);
+        if (!Files.isDirectory(versionsDir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> stream = Files.list(versionsDir)) {
+            return stream.filter(path -> !path.getFileName().toString().endsWith(STAGING_SUFFIX))
+                    .sorted(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+                    .toList();
+        } catch (IOException e) {
+            log.warn("读取版本列表失败: {}, error: {}", name, e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private void firePublished(String name) {
+        for (Consumer<String> listener : publishListeners) {
+            try {
+                listener.accept(name);
+            } catch (RuntimeException e) {
+                log.warn("发布监听器执行失败: {}, error: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private Path getVersionsDir(String name) {
+        return rootDir.resolve(VERSIONS_DIR).resolve(name);
+    }
+
+    /**
+     * 先创建临时链接再原子重命名覆盖，读取方不会看到链接缺失的瞬间
+     */
+    private void swapLink(Path link, Path target) throws IOException {
+        Path tempLink = link.resolveSibling(StrUtil.format(".{}.{}.link", link.getFileName(), IdUtil.fastSimpleUUID()));
+        Files.createSymbolicLink(tempLink, link.getParent().relativize(target));
+        try {
+            Files.move(tempLink, link, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempLink);
+            throw e;
+        }
+    }
+
+    /**
+     * 旧版本直接把文件写在 {name} 目录中，首次发布时将其迁移为一个历史版本
+     */
+    private void migrateLegacyDir(String name, Path link) throws IOException {
+        if (Files.isDirectory(link, LinkOption.NOFOLLOW_LINKS)) {
+            Path legacyVersion = getVersionsDir(name).resolve(String.format("%013d-legacy", 0));
+            FileUtil.del(legacyVersion);
+            Files.move(link, legacyVersion, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private void removeLiveLink(String name, Path stagingDir) {
+        Path liveLink = rootDir.resolve(name + LIVE_SUFFIX);
+        try {
+            if (Files.isSymbolicLink(liveLink)
+                    && liveLink.getParent().resolve(Files.readSymbolicLink(liveLink)).normalize().equals(stagingDir.normalize())) {
+                Files.deleteIfExists(liveLink);
+            }
+        } catch (IOException e) {
+            log.warn("删除实时预览链接失败: {}, error: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 保留最近 keepVersions 个版本（当前版本始终保留），并清理残留的暂存目录
+     */
+    private void prune(String name, Path currentVersion) {
+        List<Path> versions = listVersions(name);
+        for (int i = keepVersions; i < versions.size(); i++) {
+            Path version = versions.get(i);
+            if (!version.equals(currentVersion)) {
+                FileUtil.del(version);
+            }
+        }
+        long now = System.currentTimeMillis();
+        try (Stream<Path> stream = Files.list(getVersionsDir(name))) {
+            stream.filter(path -> path.getFileName().toString().endsWith(STAGING_SUFFIX))
+                    .filter(path -> now - parseCreateMillis(path) > STALE_STAGING_MILLIS)
+                    .forEach(FileUtil::del);
+        } catch (IOException e) {
+            log.warn("清理暂存目录失败: {}, error: {}", name, e.getMessage());
+        }
+    }
+
+    private static long parseCreateMillis(Path versionDir) {
+        String fileName = versionDir.getFileName().toString();
+        int index = fileName.indexOf('-');
+        try {
+            return index > 0 ? Long.parseLong(fileName.substring(0, index)) : 0L;
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
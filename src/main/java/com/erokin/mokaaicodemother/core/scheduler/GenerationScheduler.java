@@ -0,0 +1,305 @@
+package com.erokin.mokaaicodemother.core.scheduler;
+
+import com.erokin.mokaaicodemother.exception.BusinessException;
+import com.erokin.mokaaicodemother.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * 代码生成调度器
+ * 全局许可池限制同时进行的 LLM 流数量，每个用户有独立的等待队列并按用户轮转放行，
+ * 避免单个用户占满许可；排队期间推送排队位置，队列满时直接拒绝，保证高峰期吞吐稳定
+ */
+@Slf4j
+public class GenerationScheduler {
+
+    /**
+     * 全局最大并发生成数
+     */
+    private final int maxConcurrent;
+
+    /**
+     * 单个用户最大并发生成数
+     */
+    private final int maxConcurrentPerUser;
+
+    /**
+     * 全局最大排队数
+     */
+    private final int maxQueueSize;
+
+    /**
+     * 单个用户最大排队数
+     */
+    private final int maxQueuePerUser;
+
+    private final Object lock = new Object();
+
+    private int running;
+
+    private int waiting;
+
+    private final Map<Long, Integer> runningByUser = new HashMap<>();
+
+    // 按用户分组的等待队列，迭代顺序即轮转顺序，放行后该用户移到末尾
+    private final LinkedHashMap<Long, ArrayDeque<Ticket<?>>> waitingByUser = new LinkedHashMap<>();
+
+    public GenerationScheduler(int maxConcurrent, int maxConcurrentPerUser, int maxQueueSize, int maxQueuePerUser) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxConcurrentPerUser = Math.max(1, maxConcurrentPerUser);
+        this.maxQueueSize = Math.max(0, maxQueueSize);
+        this.maxQueuePerUser = Math.max(0, maxQueuePerUser);
+    }
+
+    /**
+     * 提交生成任务
+     * 订阅时申请许可，获得许可后才订阅 task；排队期间通过 queuePositionMapper 推送排队位置（从 1 开始）；
+     * 队列已满时以 {@link ErrorCode#TOO_MANY_REQUEST} 结束
+     *
+     * @param userId              用户 id
+     * @param task                生成任务（获得许可后才会被订阅）
+     * @param queuePositionMapper 排队位置转换为流元素
+     * @return 调度后的流
+     */
+    public <T> Flux<T> schedule(Long userId, Flux<T> task, IntFunction<T> queuePositionMapper) {
+        return Flux.create(sink -> {
+            Ticket<T> ticket = new Ticket<>(userId, task, sink, queuePositionMapper);
+            sink.onDispose(() -> release(ticket));
+            submit(ticket);
+        });
+    }
+
+    /**
+     * 当前正在生成的任务数
+     */
+    public int getRunningCount() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    /**
+     * 当前排队的任务数
+     */
+    public int getWaitingCount() {
+        synchronized (lock) {
+            return waiting;
+        }
+    }
+
+    private void submit(Ticket<?> ticket) {
+        // 拒绝放到锁外，避免持锁回调下游
+        if (enqueue(ticket)) {
+            ticket.reject();
+        }
+    }
+
+    /**
+     * 入队并尝试放行
+     *
+     * @return 是否因队列已满被拒绝
+     */
+    private boolean enqueue(Ticket<?> ticket) {
+        List<Ticket<?>> admitted;
+        Map<Ticket<?>, Integer> positions;
+        synchronized (lock) {
+            Long userId = ticket.userId;
+            ArrayDeque<Ticket<?>> userQueue = waitingByUser.get(userId);
+            int userWaiting = userQueue == null ? 0 : userQueue.size();
+            // 有空闲许可且该用户未达并发上限时入队即被放行（排队中的任务都在等各自用户的名额），不受队列长度限制
+            boolean canRunNow = running < maxConcurrent
+                    && runningByUser.getOrDefault(userId, 0) < maxConcurrentPerUser;
+            boolean rejected = !canRunNow && (waiting >= maxQueueSize || userWaiting >= maxQueuePerUser);
+            if (rejected) {
+                ticket.state = TicketState.DONE;
+                log.warn("生成请求被拒绝，userId: {}, running: {}, waiting: {}", userId, running, waiting);
+                return true;
+            }
+            waitingByUser.computeIfAbsent(userId, key -> new ArrayDeque<>()).addLast(ticket);
+            waiting++;
+            admitted = dispatchLocked();
+            positions = computePositionsLocked();
+        }
+        startAll(admitted);
+        notifyPositions(positions);
+        return false;
+    }
+
+    private void release(Ticket<?> ticket) {
+        List<Ticket<?>> admitted;
+        Map<Ticket<?>, Integer> positions;
+        synchronized (lock) {
+            switch (ticket.state) {
+                case WAITING -> {
+                    ArrayDeque<Ticket<?>> userQueue = waitingByUser.get(ticket.userId);
+                    if (userQueue != null && userQueue.remove(ticket)) {
+                        waiting--;
+                        if (userQueue.isEmpty()) {
+                            waitingByUser.remove(ticket.userId);
+                        }
+                    }
+                }
+                case RUNNING -> {
+                    running--;
+                    runningByUser.computeIfPresent(ticket.userId, (key, count) -> count > 1 ? count - 1 : null);
+                }
+                default -> {
+                    return;
+                }
+            }
+            ticket.state = TicketState.DONE;
+            admitted = dispatchLocked();
+            positions = computePositionsLocked();
+        }
+        ticket.cancelTask();
+        startAll(admitted);
+        notifyPositions(positions);
+    }
+
+    /**
+     * 按用户轮转放行等待中的任务，直到许可用完或没有可放行的用户
+     */
+    private List<Ticket<?>> dispatchLocked() {
+        List<Ticket<?>> admitted = new ArrayList<>();
+        while (running < maxConcurrent && waiting > 0) {
+            Long nextUserId = null;
+            for (Long userId : waitingByUser.keySet()) {
+                if (runningByUser.getOrDefault(userId, 0) < maxConcurrentPerUser) {
+                    nextUserId = userId;
+                    break;
+                }
+            }
+            if (nextUserId == null) {
+                break;
+            }
+            ArrayDeque<Ticket<?>> userQueue = waitingByUser.remove(nextUserId);
+            Ticket<?> ticket = userQueue.pollFirst();
+            if (!userQueue.isEmpty()) {
+                // 移到轮转末尾
+                waitingByUser.put(nextUserId, userQueue);
+            }
+            waiting--;
+            running++;
+            runningByUser.merge(nextUserId, 1, Integer::sum);
+            ticket.state = TicketState.RUNNING;
+            admitted.add(ticket);
+        }
+        return admitted;
+    }
+
+    /**
+     * 按轮转顺序估算每个等待任务的排队位置
+     */
+    private Map<Ticket<?>, Integer> computePositionsLocked() {
+        Map<Ticket<?>, Integer> positions = new HashMap<>();
+        List<Iterator<Ticket<?>>> iterators = new ArrayList<>();
+        for (ArrayDeque<Ticket<?>> userQueue : waitingByUser.values()) {
+            iterators.add(userQueue.iterator());
+        }
+        int position = 0;
+        boolean remaining = true;
+        while (remaining) {
+            remaining = false;
+            for (Iterator<Ticket<?>> iterator : iterators) {
+                if (iterator.hasNext()) {
+                    positions.put(iterator.next(), ++position);
+                    remaining = true;
+                }
+            }
+        }
+        return positions;
+    }
+
+    private void startAll(List<Ticket<?>> admitted) {
+        for (Ticket<?> ticket : admitted) {
+            ticket.start();
+        }
+    }
+
+    private void notifyPositions(Map<Ticket<?>, Integer> positions) {
+        positions.forEach(Ticket::notifyPosition);
+    }
+
+    private enum TicketState {
+        WAITING, RUNNING, DONE
+    }
+
+    /**
+     * 一次生成请求
+     */
+    private static class Ticket<T> {
+
+        private final Long userId;
+
+        private final Flux<T> task;
+
+        private final FluxSink<T> sink;
+
+        private final IntFunction<T> queuePositionMapper;
+
+        // 由调度器锁保护
+        private TicketState state = TicketState.WAITING;
+
+        // 以下字段由 Ticket 自身的锁保护，保证任务开始后不会再推送排队位置
+        private boolean started;
+
+        private boolean cancelled;
+
+        private int lastPosition;
+
+        private Disposable taskSubscription;
+
+        private Ticket(Long userId, Flux<T> task, FluxSink<T> sink, IntFunction<T> queuePositionMapper) {
+            this.userId = userId;
+            this.task = task;
+            this.sink = sink;
+            this.queuePositionMapper = queuePositionMapper;
+        }
+
+        private void reject() {
+            sink.error(new BusinessException(ErrorCode.TOO_MANY_REQUEST, "当前生成任务过多，请稍后再试"));
+        }
+
+        private synchronized void notifyPosition(int position) {
+            if (started || sink.isCancelled() || position == lastPosition) {
+                return;
+            }
+            lastPosition = position;
+            sink.next(queuePositionMapper.apply(position));
+        }
+
+        private void start() {
+            synchronized (this) {
+                if (started || cancelled || sink.isCancelled()) {
+                    return;
+                }
+                started = true;
+            }
+            Disposable subscription = task.subscribe(sink::next, sink::error, sink::complete);
+            boolean disposeNow;
+            synchronized (this) {
+                taskSubscription = subscription;
+                disposeNow = cancelled;
+            }
+            if (disposeNow) {
+                subscription.dispose();
+            }
+        }
+
+        private void cancelTask() {
+            Disposable subscription;
+            synchronized (this) {
+                cancelled = true;
+                subscription = taskSubscription;
+            }
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.erokin.mokaaicodemother.core.stream;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式片段合并器
+ * 模型逐 token 输出，每个 token 单独成帧会产生大量小帧、分配和 flush；
+ * 合并器把相邻片段攒在一起，累计达到 maxBytes（UTF-8 字节数）或距第一个未发送片段超过 maxDelay 时整体发出，
+ * 只在片段之间切分，不会拆开单个片段
+ */
+public class ChunkCoalescer {
+
+    /**
+     * 累计字节数达到该值立即发出
+     */
+    private final int maxBytes;
+
+    /**
+     * 片段最多等待的时长
+     */
+    private final Duration maxDelay;
+
+    /**
+     * 定时发出使用的调度器
+     */
+    private final Scheduler timer;
+
+    public ChunkCoalescer(int maxBytes, Duration maxDelay, Scheduler timer) {
+        this.maxBytes = Math.max(1, maxBytes);
+        this.maxDelay = maxDelay == null || maxDelay.isNegative() ? Duration.ZERO : maxDelay;
+        this.timer = timer;
+    }
+
+    /**
+     * 合并流式片段
+     * 出错时先发出已攒下的内容再传递错误；取消时同时取消上游和定时任务
+     *
+     * @param source 原始片段流
+     * @return 合并后的片段流
+     */
+    public Flux<String> coalesce(Flux<String> source) {
+        if (maxBytes <= 1 || maxDelay.isZero()) {
+            return source;
+        }
+        return Flux.create(sink -> {
+            Batch batch = new Batch(sink);
+            Disposable upstream = source.subscribe(batch::add, batch::error, batch::complete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                batch.cancelTimer();
+            });
+        });
+    }
+
+    /**
+     * 估算字符序列的 UTF-8 字节数
+     */
+    static int utf8Length(CharSequence text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                // 代理对合计 4 字节
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 一个流的待发出内容
+     * 上游线程与定时线程都会发出，发出操作在锁内完成以保证顺序
+     */
+    private class Batch {
+
+        private final FluxSink<String> sink;
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        private int bufferedBytes;
+
+        private Disposable pendingFlush;
+
+        private boolean done;
+
+        private Batch(FluxSink<String> sink) {
+            this.sink = sink;
+        }
+
+        private synchronized void add(String chunk) {
+            if (done || chunk.isEmpty()) {
+                return;
+            }
+            buffer.append(chunk);
+            bufferedBytes += utf8Length(chunk);
+            if (bufferedBytes >= maxBytes) {
+                flushLocked();
+            } else if (pendingFlush == null) {
+                pendingFlush = timer.schedule(this::flushByTimer, maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private synchronized void flushByTimer() {
+            pendingFlush = null;
+            if (!done) {
+                flushLocked();
+            }
+        }
+
+        private synchronized void complete() {
+            finishLocked();
+            sink.complete();
+        }
+
+        private synchronized void error(Throwable error) {
+            finishLocked();
+            sink.error(error);
+        }
+
+        private synchronized void cancelTimer() {
+            done = true;
+            disposePendingFlush();
+        }
+
+        private void finishLocked() {
+            flushLocked();
+            done = true;
+        }
+
+        private void flushLocked() {
+            disposePendingFlush();
+            if (buffer.isEmpty()) {
+                return;
+            }
+            String merged = buffer.toString();
+            buffer.setLength(0);
+            bufferedBytes = 0;
+            sink.next(merged);
+        }
+
+        private void disposePendingFlush() {
+            if (pendingFlush != null) {
+                pendingFlush.dispose();
+                pendingFlush = null;
+            }
+        }
+    }
+}
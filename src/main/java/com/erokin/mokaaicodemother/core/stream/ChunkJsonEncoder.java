@@ -0,0 +1,81 @@
+package com.erokin.mokaaicodemother.core.stream;
+
+/**
+ * 流式片段 JSON 编码器
+ * 直接把片段转义写入复用的缓冲区，生成 {"d":"..."}，替代逐片段构造 Map 再反射序列化；
+ * 一个实例对应一个流，不可跨线程并发使用
+ */
+public class ChunkJsonEncoder {
+
+    private static final String PREFIX = "{\"d\":\"";
+
+    private static final String SUFFIX = "\"}";
+
+    // JSON 允许但 JS 字符串字面量中不允许的字符，一并转义
+    private static final char LINE_SEPARATOR = 0x2028;
+
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // 超过该容量的缓冲区编码后不再保留，避免单个大片段长期占用内存
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private StringBuilder buffer = new StringBuilder(256);
+
+    /**
+     * 编码片段
+     *
+     * @param chunk 片段内容
+     * @return {"d":"..."}
+     */
+    public String encode(CharSequence chunk) {
+        buffer.setLength(0);
+        appendJson(chunk, buffer);
+        String json = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(256);
+        }
+        return json;
+    }
+
+    /**
+     * 把片段编码为 {"d":"..."} 追加到 out
+     */
+    public static void appendJson(CharSequence chunk, StringBuilder out) {
+        out.ensureCapacity(out.length() + chunk.length() + PREFIX.length() + SUFFIX.length() + 16);
+        out.append(PREFIX);
+        int length = chunk.length();
+        // 无需转义的连续区间整段追加
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chunk.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != LINE_SEPARATOR && c != PARAGRAPH_SEPARATOR) {
+                continue;
+            }
+            out.append(chunk, start, i);
+            appendEscaped(c, out);
+            start = i + 1;
+        }
+        out.append(chunk, start, length);
+        out.append(SUFFIX);
+    }
+
+    private static void appendEscaped(char c, StringBuilder out) {
+        switch (c) {
+            case '"' -> out.append("\\\"");
+            case '\\' -> out.append("\\\\");
+            case '\n' -> out.append("\\n");
+            case '\r' -> out.append("\\r");
+            case '\t' -> out.append("\\t");
+            case '\b' -> out.append("\\b");
+            case '\f' -> out.append("\\f");
+            // 其余控制字符及 JS 中的行分隔符使用 \\uXXXX
+            default -> out.append("\\u")
+                    .append(HEX_DIGITS[(c >> 12) & 0xF])
+                    .append(HEX_DIGITS[(c >> 8) & 0xF])
+                    .append(HEX_DIGITS[(c >> 4) & 0xF])
+                    .append(HEX_DIGITS[c & 0xF]);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.erokin.mokaaicodemother.core.stream;
+
+import cn.hutool.core.util.IdUtil;
+import com.erokin.mokaaicodemother.exception.BusinessException;
+import com.erokin.mokaaicodemother.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 生成流注册表
+ * 每次生成订阅一次上游，输出事件按顺序编号（id 为 {generationId}.{seq}）并保存在有界的重放缓冲中；
+ * 浏览器断线后 EventSource 会带着 Last-Event-ID 重连，从该编号之后续传，不必重新调用模型。
+ * 同一应用同一时刻只有一次生成：生成进行中以相同消息再次请求（多个标签页、刷新页面）会加入正在进行的生成并从头重放，
+ * 消息不同时直接拒绝，不会重复调用模型，也不会有两个写入方同时写 {type}_{appId} 目录。
+ * 没有客户端连接超过 detachTimeout 时取消上游；生成结束后保留 retainAfterComplete 供最后的重连
+ */
+@Slf4j
+public class GenerationStreamRegistry {
+
+    private static final char EVENT_ID_SEPARATOR = '.';
+
+    /**
+     * 重放缓冲最多保留的字符数，超出时丢弃最早的事件
+     */
+    private final long maxBufferedChars;
+
+    /**
+     * 没有客户端连接时，上游最多继续运行的时长
+     */
+    private final Duration detachTimeout;
+
+    /**
+     * 生成结束后保留重放缓冲的时长
+     */
+    private final Duration retainAfterComplete;
+
+    private final Scheduler timer;
+
+    private final Map<String, Generation> generations = new ConcurrentHashMap<>();
+
+    // 进行中的生成，按应用 id 索引
+    private final Map<Long, Generation> inFlight = new ConcurrentHashMap<>();
+
+    public GenerationStreamRegistry(long maxBufferedChars, Duration detachTimeout, Duration retainAfterComplete,
+                                    Scheduler timer) {
+        this.maxBufferedChars = Math.max(1, maxBufferedChars);
+        this.detachTimeout = detachTimeout;
+        this.retainAfterComplete = retainAfterComplete;
+        this.timer = timer;
+    }
+
+    /**
+     * 开始一次生成，或加入该应用正在进行的生成
+     * 没有进行中的生成时调用 sourceSupplier 创建上游并立即订阅；已有且消息相同时不调用，直接从头重放并跟随后续输出；
+     * 已有但消息不同时以 {@link ErrorCode#OPERATION_ERROR} 结束，属于其他用户时以 {@link ErrorCode#NO_AUTH_ERROR} 结束
+     *
+     * @param appId          应用 id
+     * @param userId         用户 id
+     * @param message        用户消息
+     * @param sourceSupplier 创建生成事件流（只在需要新开生成时调用，返回的流只会被订阅一次）
+     * @return 带事件编号的流
+     */
+    public Flux<ServerSentEvent<String>> startOrJoin(Long appId, Long userId, String message,
+                                                     Supplier<Flux<ServerSentEvent<String>>> sourceSupplier) {
+        Generation generation = new Generation(IdUtil.fastSimpleUUID(), appId, userId, message);
+        Generation existing = inFlight.putIfAbsent(appId, generation);
+        if (existing != null) {
+            if (!existing.userId.equals(userId)) {
+                return Flux.error(new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权访问该应用的生成"));
+            }
+            if (!existing.message.equals(message)) {
+                return Flux.error(new BusinessException(ErrorCode.OPERATION_ERROR, "该应用正在生成中"));
+            }
+            log.info("加入进行中的生成，appId: {}, generationId: {}", appId, existing.id);
+            return existing.attach(0);
+        }
+        Flux<ServerSentEvent<String>> source;
+        try {
+            source = sourceSupplier.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(appId, generation);
+            throw e;
+        }
+        generations.put(generation.id, generation);
+        Flux<ServerSentEvent<String>> stream = generation.attach(0);
+        // 返回的流迟迟没有被订阅时同样按无客户端处理
+        generation.scheduleDetachCheck();
+        generation.subscribeUpstream(source);
+        return stream;
+    }
+
+    /**
+     * 按 Last-Event-ID 续传
+     * 续传位置已被移出重放缓冲时以 {@link ErrorCode#OPERATION_ERROR} 结束
+     *
+     * @param lastEventId 客户端收到的最后一个事件 id
+     * @param appId       应用 id
+     * @param userId      用户 id
+     * @return 续传的流；找不到对应的生成（已过期或不属于该用户）时返回 null
+     */
+    public Flux<ServerSentEvent<String>> resume(String lastEventId, Long appId, Long userId) {
+        int index = lastEventId == null ? -1 : lastEventId.lastIndexOf(EVENT_ID_SEPARATOR);
+        if (index <= 0) {
+            return null;
+        }
+        long seq;
+        try {
+            seq = Long.parseLong(lastEventId.substring(index + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Generation generation = generations.get(lastEventId.substring(0, index));
+        if (generation == null || seq < 0 || !generation.appId.equals(appId) || !generation.userId.equals(userId)) {
+            return null;
+        }
+        return generation.attach(seq);
+    }
+
+    /**
+     * 应用是否有进行中的生成
+     */
+    public boolean isInFlight(Long appId) {
+        return inFlight.containsKey(appId);
+    }
+
+    /**
+     * 当前登记的生成数（含已结束但仍保留的）
+     */
+    public int size() {
+        return generations.size();
+    }
+
+    private record BufferedEvent(long seq, ServerSentEvent<String> event) {
+    }
+
+    /**
+     * 一次生成
+     * 缓冲、客户端列表和结束状态都由实例锁保护，事件在锁内按顺序推送给各客户端
+     */
+    private class Generation {
+
+        private final String id;
+
+        private final Long appId;
+
+        private final Long userId;
+
+        private final String message;
+
+        private final ArrayDeque<BufferedEvent> buffer = new ArrayDeque<>();
+
+        private final List<FluxSink<ServerSentEvent<String>>> sinks = new ArrayList<>();
+
+        private long bufferedChars;
+
+        private long lastSeq;
+
+        private boolean completed;
+
+        private Throwable error;
+
+        private Disposable upstream;
+
+        // 无客户端时的取消任务、结束后的移除任务
+        private Disposable pendingTask;
+
+        private Generation(String id, Long appId, Long userId, String message) {
+            this.id = id;
+            this.appId = appId;
+            this.userId = userId;
+            this.message = message;
+        }
+
+        private void subscribeUpstream(Flux<ServerSentEvent<String>> source) {
+            Disposable subscription = source.subscribe(this::publish, this::fail, this::complete);
+            boolean disposeNow;
+            synchronized (this) {
+                upstream = subscription;
+                // 订阅过程中已因无客户端连接被取消
+                disposeNow = isTerminated();
+            }
+            if (disposeNow) {
+                subscription.dispose();
+            }
+        }
+
+        private Flux<ServerSentEvent<String>> attach(long afterSeq) {
+            return Flux.create(sink -> {
+                synchronized (this) {
+                    long firstSeq = buffer.isEmpty() ? lastSeq + 1 : buffer.peekFirst().seq();
+                    if (afterSeq + 1 < firstSeq || afterSeq > lastSeq) {
+                        sink.error(new BusinessException(ErrorCode.OPERATION_ERROR, "生成进度已过期，请重新生成"));
+                        return;
+                    }
+                    for (BufferedEvent bufferedEvent : buffer) {
+                        if (bufferedEvent.seq() > afterSeq) {
+                            sink.next(bufferedEvent.event());
+                        }
+                    }
+                    if (completed) {
+                        sink.complete();
+                        return;
+                    }
+                    if (error != null) {
+                        sink.error(error);
+                        return;
+                    }
+                    sinks.add(sink);
+                    cancelPendingTask();
+                }
+                sink.onDispose(() -> detach(sink));
+            });
+        }
+
+        private synchronized void publish(ServerSentEvent<String> event) {
+            if (isTerminated()) {
+                return;
+            }
+            long seq = ++lastSeq;
+            ServerSentEvent<String> numbered = ServerSentEvent.<String>builder()
+                    .id(id + EVENT_ID_SEPARATOR + seq)
+                    .event(event.event())
+                    .data(event.data())
+                    .comment(event.comment())
+                    .retry(event.retry())
+                    .build();
+            buffer.addLast(new BufferedEvent(seq, numbered));
+            bufferedChars += length(numbered);
+            while (bufferedChars > maxBufferedChars && buffer.size() > 1) {
+                bufferedChars -= length(buffer.pollFirst().event());
+            }
+            for (FluxSink<ServerSentEvent<String>> sink : sinks) {
+                sink.next(numbered);
+            }
+        }
+
+        private void complete() {
+            List<FluxSink<ServerSentEvent<String>>> attached;
+            synchronized (this) {
+                if (isTerminated()) {
+                    return;
+                }
+                completed = true;
+                attached = terminateLocked();
+            }
+            attached.forEach(FluxSink::complete);
+        }
+
+        private void fail(Throwable throwable) {
+            List<FluxSink<ServerSentEvent<String>>> attached;
+            synchronized (this) {
+                if (isTerminated()) {
+                    return;
+                }
+                error = throwable;
+                attached = terminateLocked();
+            }
+            attached.forEach(sink -> sink.error(throwable));
+        }
+
+        private List<FluxSink<ServerSentEvent<String>>> terminateLocked() {
+            inFlight.remove(appId, this);
+            List<FluxSink<ServerSentEvent<String>>> attached = new ArrayList<>(sinks);
+            sinks.clear();
+            cancelPendingTask();
+            pendingTask = timer.schedule(() -> generations.remove(id, this),
+                    retainAfterComplete.toMillis(), TimeUnit.MILLISECONDS);
+            return attached;
+        }
+
+        private void detach(FluxSink<ServerSentEvent<String>> sink) {
+            synchronized (this) {
+                if (!sinks.remove(sink) || !sinks.isEmpty() || isTerminated()) {
+                    return;
+                }
+                scheduleDetachCheck();
+            }
+        }
+
+        private synchronized void scheduleDetachCheck() {
+            cancelPendingTask();
+            pendingTask = timer.schedule(this::cancelIfDetached, detachTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private void cancelIfDetached() {
+            Disposable subscription;
+            synchronized (this) {
+                if (!sinks.isEmpty() || isTerminated()) {
+                    return;
+                }
+                subscription = upstream;
+                // 在锁内标记结束，之后重连的客户端直接收到取消错误，不会先加入再被结束
+                error = new BusinessException(ErrorCode.OPERATION_ERROR, "生成已取消");
+                terminateLocked();
+                generations.remove(id, this);
+            }
+            log.info("生成流长时间无客户端连接，取消生成，appId: {}, generationId: {}", appId, id);
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        }
+
+        private boolean isTerminated() {
+            return completed || error != null;
+        }
+
+        private void cancelPendingTask() {
+            if (pendingTask != null) {
+                pendingTask.dispose();
+                pendingTask = null;
+            }
+        }
+
+        private static long length(ServerSentEvent<String> event) {
+            return event.data() == null ? 0 : event.data().length();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.erokin.mokaaicodemother.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * 近似总数缓存
+ * 分页总数只在首次查询时同步统计，之后直接返回缓存值，超过刷新间隔后在后台异步重新统计，
+ * 列表请求不再每次执行 COUNT；总数可能短暂滞后，只用于展示页码
+ */
+@Slf4j
+public class ApproximateCountCache<K> {
+
+    private record Entry(long count, long loadedAt) {
+    }
+
+    private final Cache<K, Entry> cache;
+
+    private final long refreshAfterMillis;
+
+    private final Executor executor;
+
+    // 正在后台刷新的键，避免重复提交
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+
+    public ApproximateCountCache(Duration refreshAfterWrite, Duration expireAfterWrite, long maximumSize,
+                                 Executor executor, MeterRegistry meterRegistry, String cacheName) {
+        this.refreshAfterMillis = refreshAfterWrite.toMillis();
+        this.executor = executor;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName);
+    }
+
+    /**
+     * 获取近似总数
+     *
+     * @param key     查询条件
+     * @param counter 统计总数（未缓存时同步调用，过期后异步调用）
+     */
+    public long get(K key, LongSupplier counter) {
+        Entry entry = cache.get(key, k -> new Entry(counter.getAsLong(), System.currentTimeMillis()));
+        if (System.currentTimeMillis() - entry.loadedAt() >= refreshAfterMillis && refreshing.add(key)) {
+            try {
+                executor.execute(() -> refresh(key, counter));
+            } catch (RuntimeException e) {
+                refreshing.remove(key);
+                log.warn("提交总数刷新任务失败: {}", e.getMessage());
+            }
+        }
+        return entry.count();
+    }
+
+    private void refresh(K key, LongSupplier counter) {
+        try {
+            cache.put(key, new Entry(counter.getAsLong(), System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            // 刷新失败继续使用旧值，下次访问再试
+            log.warn("刷新总数失败: {}, error: {}", key, e.getMessage());
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+}
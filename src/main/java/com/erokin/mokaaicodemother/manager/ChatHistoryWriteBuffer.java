@@ -0,0 +1,200 @@
+package com.erokin.mokaaicodemother.manager;
+
+import com.erokin.mokaaicodemother.mapper.ChatHistoryMapper;
+import com.erokin.mokaaicodemother.model.entity.ChatHistory;
+import com.mybatisflex.core.keygen.IKeyGenerator;
+import com.mybatisflex.core.keygen.KeyGeneratorFactory;
+import com.mybatisflex.core.keygen.KeyGenerators;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 对话历史写缓冲
+ * 消息先进入内存队列立即返回，由后台线程按条数或时间阈值合并为多行插入，
+ * 减少高并发对话时每条消息一次数据库往返；关闭时会把队列中的消息全部写完
+ */
+@Slf4j
+public class ChatHistoryWriteBuffer implements Closeable {
+
+    private final ChatHistoryMapper chatHistoryMapper;
+
+    /**
+     * 单次批量插入的最大条数，队列积压达到该值时立即触发写入
+     */
+    private final int batchSize;
+
+    /**
+     * 定时写入间隔
+     */
+    private final Duration flushInterval;
+
+    private final BlockingQueue<ChatHistory> pending;
+
+    // 写入与丢弃互斥，保证删除应用时不会有该应用的消息在删除后才落库
+    private final Object flushLock = new Object();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final ScheduledExecutorService executor;
+
+    private final IKeyGenerator idGenerator = KeyGeneratorFactory.getKeyGenerator(KeyGenerators.snowFlakeId);
+
+    private final Timer flushTimer;
+
+    private final Counter failedCounter;
+
+    public ChatHistoryWriteBuffer(ChatHistoryMapper chatHistoryMapper, int batchSize, Duration flushInterval,
+                                  int maxPending, MeterRegistry meterRegistry) {
+        this.chatHistoryMapper = chatHistoryMapper;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = flushInterval;
+        this.pending = new LinkedBlockingQueue<>(Math.max(this.batchSize, maxPending));
+        this.executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("chat-history-writer").daemon(true).factory());
+        this.executor.scheduleWithFixedDelay(this::flushQuietly,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        Gauge.builder("chat_history.write_buffer.pending", pending, BlockingQueue::size)
+                .description("等待写入的对话消息数")
+                .register(meterRegistry);
+        Gauge.builder("chat_history.write_buffer.lag", this, ChatHistoryWriteBuffer::getLagSeconds)
+                .description("最早一条未写入消息的等待时长")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("chat_history.write_buffer.flush")
+                .description("批量写入耗时")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("chat_history.write_buffer.failed")
+                .description("写入失败的对话消息数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 加入写缓冲，立即分配 id 并填充创建时间，保证按 createTime 排序与实际发送顺序一致
+     * 队列已满时退化为同步写入
+     */
+    public void add(ChatHistory chatHistory) {
+        LocalDateTime now = LocalDateTime.now();
+        if (chatHistory.getId() == null) {
+            chatHistory.setId((Long) idGenerator.generate(chatHistory, "id"));
+        }
+        chatHistory.setCreateTime(now);
+        chatHistory.setUpdateTime(now);
+        chatHistory.setIsDelete(0);
+        if (!pending.offer(chatHistory)) {
+            log.warn("对话历史写缓冲已满，同步写入，appId: {}", chatHistory.getAppId());
+            chatHistoryMapper.insert(chatHistory);
+            return;
+        }
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // 已关闭，交由关闭流程写入
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * 是否还有该应用未写入的消息
+     * 持有写入锁检查：正在写入的批次已移出队列但尚未提交，需等其写完，保证随后查询能读到
+     */
+    public boolean hasPending(Long appId) {
+        synchronized (flushLock) {
+            for (ChatHistory chatHistory : pending) {
+                if (Objects.equals(chatHistory.getAppId(), appId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 丢弃该应用未写入的消息（删除应用时调用）
+     */
+    public void discard(Long appId) {
+        synchronized (flushLock) {
+            pending.removeIf(chatHistory -> Objects.equals(chatHistory.getAppId(), appId));
+        }
+    }
+
+    /**
+     * 立即写入队列中的全部消息
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            while (!pending.isEmpty()) {
+                List<ChatHistory> batch = new ArrayList<>(batchSize);
+                if (pending.drainTo(batch, batchSize) == 0) {
+                    break;
+                }
+                flushTimer.record(() -> insertBatch(batch));
+            }
+        }
+    }
+
+    /**
+     * 停止定时写入，并把剩余消息写完
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(flushInterval.toMillis() + 5000, TimeUnit.MILLISECONDS)) {
+                log.warn("对话历史写缓冲后台线程未能按时结束");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("对话历史写缓冲已关闭");
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("对话历史批量写入失败: {}", e.getMessage());
+        }
+    }
+
+    private void insertBatch(List<ChatHistory> batch) {
+        try {
+            chatHistoryMapper.insertBatch(batch);
+        } catch (Exception e) {
+            // 批量失败时逐条重试，避免一条坏数据拖累整批
+            log.warn("对话历史批量写入失败，改为逐条写入，size: {}, error: {}", batch.size(), e.getMessage());
+            for (ChatHistory chatHistory : batch) {
+                try {
+                    chatHistoryMapper.insert(chatHistory);
+                } catch (Exception ex) {
+                    failedCounter.increment();
+                    log.error("对话历史写入失败，id: {}, appId: {}, error: {}",
+                            chatHistory.getId(), chatHistory.getAppId(), ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private double getLagSeconds() {
+        ChatHistory oldest = pending.peek();
+        if (oldest == null || oldest.getCreateTime() == null) {
+            return 0;
+        }
+        return Duration.between(oldest.getCreateTime(), LocalDateTime.now()).toMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,69 @@
+package com.erokin.mokaaicodemother.manager;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 已部署应用索引
+ * 启动时扫描一次部署目录，之后由部署流程维护，请求路径上只查内存，
+ * 未部署的 deployKey 直接 404，不访问数据库和文件系统
+ */
+@Slf4j
+public class DeployIndex {
+
+    private final Path rootDir;
+
+    private final StaticFileCache fileCache;
+
+    private final Set<String> deployKeys = ConcurrentHashMap.newKeySet();
+
+    public DeployIndex(String rootDir, StaticFileCache fileCache) {
+        this.rootDir = Paths.get(rootDir).toAbsolutePath().normalize();
+        this.fileCache = fileCache;
+        load();
+    }
+
+    /**
+     * deployKey 是否已部署
+     */
+    public boolean contains(String deployKey) {
+        return deployKeys.contains(deployKey);
+    }
+
+    /**
+     * 部署（或重新部署）完成后调用：登记 deployKey 并失效其文件缓存
+     */
+    public void refresh(String deployKey) {
+        deployKeys.add(deployKey);
+        fileCache.invalidate(deployKey);
+    }
+
+    /**
+     * 已部署的应用数
+     */
+    public int size() {
+        return deployKeys.size();
+    }
+
+    private void load() {
+        if (!Files.isDirectory(rootDir)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.list(rootDir)) {
+            stream.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> !name.startsWith("."))
+                    .forEach(deployKeys::add);
+        } catch (IOException e) {
+            log.error("扫描部署目录失败: {}, error: {}", rootDir, e.getMessage());
+        }
+        log.info("已加载部署索引，共 {} 个应用", deployKeys.size());
+    }
+}
@@ -0,0 +1,206 @@
+package com.erokin.mokaaicodemother.manager;
+
+import cn.hutool.core.util.StrUtil;
+import com.erokin.mokaaicodemother.common.CursorPage;
+import com.erokin.mokaaicodemother.common.KeysetCursor;
+import com.erokin.mokaaicodemother.exception.BusinessException;
+import com.erokin.mokaaicodemother.exception.ErrorCode;
+import com.erokin.mokaaicodemother.mapper.AppMapper;
+import com.erokin.mokaaicodemother.model.entity.App;
+import com.mybatisflex.core.paginate.Page;
+import com.mybatisflex.core.query.QueryWrapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 精选应用快照
+ * 精选应用（priority > 0）按优先级从高到低整体加载到内存，首页列表的分页与名称过滤都在快照上完成，
+ * 不访问数据库；管理员修改优先级或删除应用后异步重建，另有定时重建兜底。
+ * 精选应用超过 maxSize 时快照不完整（告警并记录指标），调用方应改查数据库
+ */
+@Slf4j
+public class FeaturedAppSnapshot implements Closeable {
+
+    private final AppMapper appMapper;
+
+    /**
+     * 快照最多保留的应用数
+     */
+    private final int maxSize;
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+    // 按 (priority, id) 降序排列的不可变列表，整体替换
+    private volatile List<App> apps;
+
+    private volatile long loadedAt;
+
+    // 精选应用数超过 maxSize，快照只含前 maxSize 个
+    private volatile boolean truncated;
+
+    public FeaturedAppSnapshot(AppMapper appMapper, int maxSize, Duration refreshInterval, MeterRegistry meterRegistry) {
+        this.appMapper = appMapper;
+        this.maxSize = Math.max(1, maxSize);
+        this.executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("featured-app-snapshot").daemon(true).factory());
+        this.executor.scheduleWithFixedDelay(this::refreshQuietly,
+                refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        Gauge.builder("featured_app.snapshot.size", this, snapshot -> snapshot.apps == null ? 0 : snapshot.apps.size())
+                .description("精选应用快照中的应用数")
+                .register(meterRegistry);
+        Gauge.builder("featured_app.snapshot.age", this, FeaturedAppSnapshot::getAgeSeconds)
+                .description("精选应用快照距上次重建的时长")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("featured_app.snapshot.truncated", this, snapshot -> snapshot.truncated ? 1 : 0)
+                .description("精选应用数是否超过快照上限")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 快照是否包含全部精选应用
+     */
+    public boolean isComplete() {
+        snapshot();
+        return !truncated;
+    }
+
+    /**
+     * 分页查询精选应用
+     *
+     * @param appName  应用名称（包含匹配，忽略大小写），为空时不过滤
+     * @param pageNum  页号
+     * @param pageSize 页面大小
+     */
+    public Page<App> page(String appName, long pageNum, long pageSize) {
+        List<App> filtered = filter(appName);
+        long from = Math.min((Math.max(pageNum, 1) - 1) * pageSize, filtered.size());
+        long to = Math.min(from + pageSize, filtered.size());
+        return new Page<>(new ArrayList<>(filtered.subList((int) from, (int) to)), pageNum, pageSize, filtered.size());
+    }
+
+    /**
+     * 游标分页查询精选应用，游标为 (priority, id)
+     */
+    public CursorPage<App> listByCursor(String appName, KeysetCursor cursor, int pageSize) {
+        List<App> filtered = filter(appName);
+        int start = 0;
+        if (cursor != null) {
+            int cursorPriority;
+            try {
+                cursorPriority = Integer.parseInt(cursor.sortValue());
+            } catch (NumberFormatException e) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+            }
+            while (start < filtered.size() && !isAfter(filtered.get(start), cursorPriority, cursor.id())) {
+                start++;
+            }
+        }
+        List<App> rows = filtered.subList(start, Math.min(start + pageSize + 1, filtered.size()));
+        return CursorPage.of(new ArrayList<>(rows), pageSize,
+                app -> new KeysetCursor(String.valueOf(app.getPriority()), app.getId()));
+    }
+
+    /**
+     * 请求异步重建（多次请求会合并为一次）
+     */
+    public void refreshAsync() {
+        if (refreshRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::refreshQuietly);
+            } catch (RejectedExecutionException e) {
+                refreshRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * 同步重建快照
+     */
+    public void refresh() {
+        refreshRequested.set(false);
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .gt("priority", 0)
+                .orderBy("priority", false)
+                .orderBy("id", false)
+                .limit(maxSize + 1);
+        List<App> loaded = appMapper.selectListByQuery(queryWrapper);
+        // 多查一条判断是否超过上限
+        boolean overflow = loaded.size() > maxSize;
+        apps = List.copyOf(overflow ? loaded.subList(0, maxSize) : loaded);
+        truncated = overflow;
+        loadedAt = System.currentTimeMillis();
+        if (overflow) {
+            log.warn("精选应用数超过快照上限 {}，精选列表改查数据库，请调大 featured-app.snapshot.max-size", maxSize);
+        } else {
+            log.debug("精选应用快照已重建，共 {} 个应用", loaded.size());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private List<App> snapshot() {
+        List<App> snapshot = apps;
+        if (snapshot == null) {
+            // 首次访问时同步加载
+            synchronized (this) {
+                if (apps == null) {
+                    refresh();
+                }
+                snapshot = apps;
+            }
+        }
+        return snapshot;
+    }
+
+    private List<App> filter(String appName) {
+        List<App> snapshot = snapshot();
+        if (StrUtil.isBlank(appName)) {
+            return snapshot;
+        }
+        List<App> filtered = new ArrayList<>();
+        for (App app : snapshot) {
+            if (StrUtil.containsIgnoreCase(app.getAppName(), appName)) {
+                filtered.add(app);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * 应用是否排在游标之后
+     */
+    private static boolean isAfter(App app, int cursorPriority, long cursorId) {
+        int priority = app.getPriority();
+        return priority < cursorPriority || (priority == cursorPriority && app.getId() < cursorId);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // 重建失败继续使用旧快照
+            log.error("重建精选应用快照失败: {}", e.getMessage());
+        }
+    }
+
+    private double getAgeSeconds() {
+        return loadedAt == 0 ? 0 : (System.currentTimeMillis() - loadedAt) / 1000.0;
+    }
+}
@@ -0,0 +1,114 @@
+package com.erokin.mokaaicodemother.manager;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+
+/**
+ * 静态资源热点文件缓存
+ * 以 {deployKey}/{path} 为键缓存小文件的内容与强 ETag、大文件的元信息以及不存在的路径，
+ * 缓存命中时无需访问磁盘；目录发布、回滚或重新部署时按 deployKey 整体失效
+ */
+@Slf4j
+public class StaticFileCache {
+
+    /**
+     * 缓存的文件信息
+     *
+     * @param exists       文件是否存在（不存在也会缓存，避免重复访问磁盘）
+     * @param content      文件内容，超过缓存大小上限时为 null
+     * @param eTag         ETag，小文件基于内容哈希，大文件基于大小与修改时间
+     * @param length       文件大小
+     * @param lastModified 最后修改时间（毫秒）
+     */
+    public record CachedFile(boolean exists, byte[] content, String eTag, long length, long lastModified) {
+
+        private static final CachedFile MISSING = new CachedFile(false, null, null, 0, 0);
+    }
+
+    private final Path rootDir;
+
+    /**
+     * 超过该大小的文件只缓存元信息，内容从磁盘读取
+     */
+    private final long maxFileSize;
+
+    private final Cache<String, CachedFile> cache;
+
+    public StaticFileCache(String rootDir, long maximumWeightBytes, long maxFileSize, Duration expireAfterWrite,
+                           MeterRegistry meterRegistry, String cacheName) {
+        this.rootDir = Paths.get(rootDir).toAbsolutePath().normalize();
+        this.maxFileSize = maxFileSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .weigher((String key, CachedFile value) ->
+                        (value.content() == null ? 0 : value.content().length) + key.length() * 2 + 128)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName);
+    }
+
+    /**
+     * 解析资源对应的文件路径，超出根目录时返回 null
+     *
+     * @param deployKey    目录名
+     * @param resourcePath 以 / 开头的资源路径
+     */
+    public Path resolve(String deployKey, String resourcePath) {
+        Path file = rootDir.resolve(deployKey + resourcePath).normalize();
+        return file.startsWith(rootDir.resolve(deployKey).normalize()) ? file : null;
+    }
+
+    /**
+     * 获取缓存的文件信息，未缓存时读取磁盘并放入缓存
+     *
+     * @return 读取出错时返回 null
+     */
+    public CachedFile get(String deployKey, String resourcePath, Path file) {
+        return cache.get(deployKey + resourcePath, key -> load(file));
+    }
+
+    /**
+     * 失效某个目录下的全部缓存
+     */
+    public void invalidate(String deployKey) {
+        String prefix = deployKey + "/";
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private CachedFile load(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return CachedFile.MISSING;
+            }
+            long length = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            if (length > maxFileSize) {
+                String eTag = StrUtil.format("W/\"{}-{}\"", Long.toHexString(length), Long.toHexString(lastModified));
+                return new CachedFile(true, null, eTag, length, lastModified);
+            }
+            byte[] content = Files.readAllBytes(file);
+            return new CachedFile(true, content, "\"" + DigestUtil.sha256Hex(content) + "\"", content.length, lastModified);
+        } catch (NoSuchFileException e) {
+            return CachedFile.MISSING;
+        } catch (IOException e) {
+            // 其他读取错误不缓存，下次请求重试
+            log.warn("读取静态文件失败: {}, error: {}", file, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.erokin.mokaaicodemother.manager;
+
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.erokin.mokaaicodemother.core.saver.GzipPrecompressor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * 静态文件发送
+ * 不小于 sendfileThreshold 的文件在 Tomcat 支持时交给 sendfile 由内核直接从页缓存写入 socket，
+ * 不经过 JVM 缓冲区；其余文件内容已缓存时从内存热点缓存输出，否则交给 Spring 的 Resource 输出。
+ * 三条路径都支持 gzip 协商、ETag 与 Range；可缓存目录在缓存命中后除 sendfile 外不再访问磁盘
+ */
+@Slf4j
+public class StaticFileSender {
+
+    /**
+     * Tomcat sendfile 相关请求属性
+     */
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // 已直接写入 response 的标记
+    private static final ResponseEntity<Resource> WRITTEN = ResponseEntity.ok().build();
+
+    private final StaticFileCache fileCache;
+
+    /**
+     * 不小于该大小的文件在支持 sendfile 时使用 sendfile（内容已在内存缓存中也一样）
+     */
+    private final long sendfileThreshold;
+
+    /**
+     * 非 HTML 资源的浏览器缓存策略
+     */
+    private final CacheControl assetCacheControl;
+
+    public StaticFileSender(StaticFileCache fileCache, long sendfileThreshold, CacheControl assetCacheControl) {
+        this.fileCache = fileCache;
+        this.sendfileThreshold = sendfileThreshold;
+        this.assetCacheControl = assetCacheControl;
+    }
+
+    /**
+     * 发送 {deployKey}{resourcePath} 对应的文件
+     *
+     * @param cacheable 内容是否稳定（正在写入的目录不缓存、不走 sendfile）
+     * @return 响应；已直接写入 response 时返回 null
+     */
+    public ResponseEntity<Resource> send(String deployKey, String resourcePath, String contentType, boolean cacheable,
+                                         HttpServletRequest request, HttpServletResponse response) {
+        // 构建文件路径（不允许越出应用目录）
+        Path file = fileCache.resolve(deployKey, resourcePath);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean compressible = GzipPrecompressor.isCompressible(resourcePath);
+        ResponseEntity<Resource> result = null;
+        // 客户端支持 gzip 且存在预压缩副本时直接返回副本
+        if (compressible && acceptsGzip(request)) {
+            Path gzipFile = file.resolveSibling(file.getFileName() + GzipPrecompressor.GZIP_SUFFIX);
+            result = sendVariant(new FileVariant(deployKey, resourcePath + GzipPrecompressor.GZIP_SUFFIX, gzipFile,
+                    contentType, true, true), cacheable, request, response);
+        }
+        if (result == null) {
+            result = sendVariant(new FileVariant(deployKey, resourcePath, file, contentType, false, compressible),
+                    cacheable, request, response);
+        }
+        if (result == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return result == WRITTEN ? null : result;
+    }
+
+    /**
+     * 发送一个文件变体
+     *
+     * @return 文件不存在时返回 null，已直接写入 response 时返回 WRITTEN
+     */
+    private ResponseEntity<Resource> sendVariant(FileVariant variant, boolean cacheable, HttpServletRequest request,
+                                                 HttpServletResponse response) {
+        if (!cacheable) {
+            // 内容随时变化，每次读取磁盘
+            File file = variant.file().toFile();
+            if (!file.isFile()) {
+                return null;
+            }
+            return variant.headers(CacheControl.noCache())
+                    .lastModified(file.lastModified())
+                    .body(new FileSystemResource(file));
+        }
+        StaticFileCache.CachedFile cachedFile = fileCache.get(variant.deployKey(), variant.cacheKeyPath(), variant.file());
+        if (cachedFile == null || !cachedFile.exists()) {
+            return null;
+        }
+        CacheControl cacheControl = resolveCacheControl(variant.cacheKeyPath());
+        // 大文件：使用缓存的元信息，由内核直接发送
+        if (cachedFile.length() >= sendfileThreshold && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            sendfile(variant, cachedFile, cacheControl, request, response);
+            return WRITTEN;
+        }
+        if (cachedFile.content() != null) {
+            // 带上 ETag / Last-Modified，条件请求与 Range 由 Spring 处理
+            return variant.headers(cacheControl)
+                    .eTag(cachedFile.eTag())
+                    .lastModified(cachedFile.lastModified())
+                    .body(new ByteArrayResource(cachedFile.content()));
+        }
+        // 返回文件资源
+        return variant.headers(cacheControl)
+                .eTag(cachedFile.eTag())
+                .lastModified(cachedFile.lastModified())
+                .body(new FileSystemResource(variant.file()));
+    }
+
+    /**
+     * HTML 入口每次协商，其余资源使用配置的缓存策略
+     */
+    private CacheControl resolveCacheControl(String resourcePath) {
+        String path = StrUtil.removeSuffix(resourcePath, GzipPrecompressor.GZIP_SUFFIX);
+        return path.endsWith(".html") || path.endsWith(".htm") ? CacheControl.noCache() : assetCacheControl;
+    }
+
+    /**
+     * 通过 Tomcat sendfile 发送文件，支持单个 Range
+     */
+    private void sendfile(FileVariant variant, StaticFileCache.CachedFile cachedFile, CacheControl cacheControl,
+                          HttpServletRequest request, HttpServletResponse response) {
+        long length = cachedFile.length();
+        long lastModified = cachedFile.lastModified();
+        String eTag = cachedFile.eTag();
+        response.setHeader(HttpHeaders.CONTENT_TYPE, variant.contentType());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (variant.gzip()) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        if (variant.vary()) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        // 同时写入 ETag / Last-Modified 响应头，命中时直接 304
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) {
+            return;
+        }
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (StrUtil.isNotBlank(rangeHeader) && ifRangeMatches(ifRange, eTag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.getFirst();
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+                if (start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, StrUtil.format("bytes {}-{}/{}", start, end, length));
+            }
+        }
+        response.setContentLengthLong(end - start + 1);
+        if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+            return;
+        }
+        request.setAttribute(SENDFILE_FILENAME_ATTR, variant.file().toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START_ATTR, start);
+        request.setAttribute(SENDFILE_END_ATTR, end + 1);
+    }
+
+    /**
+     * If-Range 是否仍匹配当前内容（不匹配时忽略 Range 返回完整内容）
+     * ETag 按强比较，弱 ETag 永不匹配；日期须与 Last-Modified（精确到秒）一致
+     */
+    private static boolean ifRangeMatches(String ifRange, String eTag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return !eTag.startsWith("W/") && ifRange.equals(eTag);
+        }
+        try {
+            long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return date == lastModified / 1000 * 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 请求头 Accept-Encoding 是否接受 gzip（q=0 表示不接受）
+     */
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (StrUtil.isBlank(acceptEncoding)) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim();
+            if (!"gzip".equalsIgnoreCase(coding) && !"*".equals(coding)) {
+                continue;
+            }
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=") && NumberUtil.isNumber(param.substring(2))
+                        && Double.parseDouble(param.substring(2)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 一个待发送的文件变体（原文件或 .gz 副本）
+     *
+     * @param cacheKeyPath 缓存键中的资源路径
+     * @param gzip         是否为预压缩副本
+     * @param vary         响应是否随 Accept-Encoding 变化
+     */
+    private record FileVariant(String deployKey, String cacheKeyPath, Path file, String contentType,
+                               boolean gzip, boolean vary) {
+
+        private ResponseEntity.BodyBuilder headers(CacheControl cacheControl) {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_TYPE, contentType)
+                    .cacheControl(cacheControl);
+            if (gzip) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            if (vary) {
+                builder.varyBy(HttpHeaders.ACCEPT_ENCODING);
+            }
+            return builder;
+        }
+    }
+}
@@ -51,6 +51,11 @@ public class AppQueryRequest extends PageRequest implements Serializable {
      */
     private Long userId;
 
+    /**
+     * 游标分页 - 上一页返回的 nextCursor，首页不传
+     */
+    private String cursor;
+
     @Serial
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.erokin.mokaaicodemother.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 应用部署结果
+ */
+@Data
+public class AppDeployVO implements Serializable {
+
+    /**
+     * 部署网址
+     */
+    private String deployUrl;
+
+    /**
+     * 是否发布了新版本（内容未变化时为 false）
+     */
+    private Boolean changed;
+
+    /**
+     * 新写入的文件数
+     */
+    private Integer filesCopied;
+
+    /**
+     * 删除的文件数
+     */
+    private Integer filesRemoved;
+
+    /**
+     * 新写入的字节数
+     */
+    private Long bytesCopied;
+
+    /**
+     * 部署耗时（微秒）
+     */
+    private Long durationMicros;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -1,8 +1,11 @@
 package com.erokin.mokaaicodemother.service;
 
+import com.erokin.mokaaicodemother.common.CursorPage;
 import com.erokin.mokaaicodemother.model.dto.app.AppQueryRequest;
 import com.erokin.mokaaicodemother.model.entity.User;
+import com.erokin.mokaaicodemother.model.vo.AppDeployVO;
 import com.erokin.mokaaicodemother.model.vo.AppVO;
+import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.service.IService;
 import com.erokin.mokaaicodemother.model.entity.App;
@@ -57,9 +60,39 @@ public interface AppService extends IService<App> {
      */
     QueryWrapper getFeaturedAppQueryWrapper(AppQueryRequest appQueryRequest);
 
+    /**
+     * 分页查询应用，总数取自近似总数缓存，不执行 COUNT（用于管理员列表与精选列表，总数可短暂滞后）
+     *
+     * @param appQueryRequest 查询条件
+     * @param featured        是否为精选应用列表
+     * @param pageSize        页面大小
+     * @return 应用分页
+     */
+    Page<App> pageWithApproximateTotal(AppQueryRequest appQueryRequest, boolean featured, long pageSize);
+
+    /**
+     * 游标分页查询自己的应用（按创建时间从新到旧），不统计总数
+     */
+    CursorPage<App> listMyAppByCursor(AppQueryRequest appQueryRequest, int pageSize);
+
+    /**
+     * 分页查询精选应用，默认按优先级排序时直接读取内存快照（精选应用超出快照上限时查数据库）
+     */
+    Page<App> pageFeaturedApp(AppQueryRequest appQueryRequest, long pageSize);
+
+    /**
+     * 游标分页查询精选应用（按优先级从高到低），读取内存快照（精选应用超出快照上限时查数据库）
+     */
+    CursorPage<App> listFeaturedAppByCursor(AppQueryRequest appQueryRequest, int pageSize);
+
 
 
     Flux<String> chatToGenCode(Long appId, String message, User loginUser);
 
-    String deployApp(Long appId,User loginUser);
+    /**
+     * 部署应用
+     *
+     * @return 部署网址与本次部署的统计
+     */
+    AppDeployVO deployApp(Long appId,User loginUser);
 }
@@ -1,14 +1,18 @@
 package com.erokin.mokaaicodemother.service;
 
+import com.erokin.mokaaicodemother.common.CursorPage;
+import com.erokin.mokaaicodemother.common.KeysetCursor;
 import com.erokin.mokaaicodemother.model.dto.chatHistory.ChatHistoryQueryRequest;
 import com.erokin.mokaaicodemother.model.entity.User;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.service.IService;
 import com.erokin.mokaaicodemother.model.entity.ChatHistory;
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 对话历史 服务层。
@@ -59,10 +63,26 @@ public interface ChatHistoryService extends IService<ChatHistory> {
     QueryWrapper getQueryWrapper(ChatHistoryQueryRequest chatHistoryQueryRequest);
 
 
-    Page<ChatHistory> listAppChatHistoryByPage(Long appId, int pageSize,
-                                               LocalDateTime lastCreateTime,
-                                               User loginUser);
+    /**
+     * 游标分页查询某个应用的对话历史（新 -> 旧），按 (createTime, id) 键集分页，不统计总数
+     *
+     * @param appId    应用 id
+     * @param pageSize 页面大小
+     * @param cursor   上一页返回的游标，首页为空
+     * @param loginUser 登录用户
+     * @return 对话历史分页
+     */
+    CursorPage<ChatHistory> listAppChatHistoryByCursor(Long appId, int pageSize, KeysetCursor cursor, User loginUser);
 
     //加载对话历史
     int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount);
+
+    /**
+     * 读取应用最近的对话消息（旧 -> 新），用于恢复对话记忆
+     *
+     * @param appId    应用 id
+     * @param maxCount 最多读取条数
+     * @return 对话消息
+     */
+    List<ChatMessage> loadRecentChatMessages(Long appId, int maxCount);
 }
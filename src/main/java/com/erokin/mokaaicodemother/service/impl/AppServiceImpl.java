@@ -4,21 +4,31 @@ import java.time.LocalDateTime;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.convert.Convert;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.erokin.mokaaicodemother.common.CursorPage;
+import com.erokin.mokaaicodemother.common.KeysetCursor;
 import com.erokin.mokaaicodemother.constant.AppConstant;
 import com.erokin.mokaaicodemother.core.AiCodeGeneratorFacade;
+import com.erokin.mokaaicodemother.core.deploy.DeployStore;
 import com.erokin.mokaaicodemother.exception.BusinessException;
 import com.erokin.mokaaicodemother.exception.ErrorCode;
 import com.erokin.mokaaicodemother.exception.ThrowUtils;
+import com.erokin.mokaaicodemother.manager.ApproximateCountCache;
+import com.erokin.mokaaicodemother.manager.DeployIndex;
+import com.erokin.mokaaicodemother.manager.FeaturedAppSnapshot;
 import com.erokin.mokaaicodemother.model.dto.app.AppQueryRequest;
 import com.erokin.mokaaicodemother.model.entity.User;
 import com.erokin.mokaaicodemother.model.enums.ChatHistoryMessageTypeEnum;
 import com.erokin.mokaaicodemother.model.enums.CodeGenTypeEnum;
+import com.erokin.mokaaicodemother.model.vo.AppDeployVO;
 import com.erokin.mokaaicodemother.model.vo.AppVO;
 import com.erokin.mokaaicodemother.service.AppService;
 import com.erokin.mokaaicodemother.service.ChatHistoryService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
 import com.erokin.mokaaicodemother.model.entity.App;
@@ -27,10 +37,16 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -46,6 +62,18 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     private AiCodeGeneratorFacade aiCodeGeneratorFacade;
     @Resource
     private ChatHistoryService chatHistoryService;
+    @Resource
+    private Scheduler generationIoScheduler;
+    @Resource
+    private DeployIndex deployIndex;
+    @Resource
+    private DeployStore deployStore;
+    @Resource
+    private ApproximateCountCache<String> appCountCache;
+    @Resource
+    private FeaturedAppSnapshot featuredAppSnapshot;
+    @Resource
+    private Cache<Long, App> appCache;
 
     @Override
     public void validApp(App app, boolean add) {
@@ -132,6 +160,79 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         return queryWrapper;
     }
 
+    @Override
+    public Page<App> pageWithApproximateTotal(AppQueryRequest appQueryRequest, boolean featured, long pageSize) {
+        long pageNum = Math.max(appQueryRequest.getPageNum(), 1);
+        // 总数只与过滤条件有关，去掉分页与排序参数作为缓存键
+        AppQueryRequest countRequest = new AppQueryRequest();
+        BeanUtil.copyProperties(appQueryRequest, countRequest, "pageNum", "pageSize", "sortField", "sortOrder", "cursor");
+        countRequest.setSortOrder(null);
+        String countKey = (featured ? "featured:" : "all:") + JSONUtil.toJsonStr(countRequest);
+        long totalRow = appCountCache.get(countKey, () -> this.count(featured
+                ? getFeaturedAppQueryWrapper(countRequest) : getQueryWrapper(countRequest)));
+        QueryWrapper queryWrapper = featured ? getFeaturedAppQueryWrapper(appQueryRequest) : getQueryWrapper(appQueryRequest);
+        List<App> records = this.list(queryWrapper.limit((pageNum - 1) * pageSize, pageSize));
+        return new Page<>(records, pageNum, pageSize, totalRow);
+    }
+
+    @Override
+    public CursorPage<App> listMyAppByCursor(AppQueryRequest appQueryRequest, int pageSize) {
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .eq("userId", appQueryRequest.getUserId())
+                .like("appName", appQueryRequest.getAppName());
+        KeysetCursor cursor = KeysetCursor.decode(appQueryRequest.getCursor());
+        if (cursor != null) {
+            LocalDateTime cursorTime = parseCursorValue(cursor, LocalDateTime::parse);
+            queryWrapper.and("(createTime < ? or (createTime = ? and id < ?))", cursorTime, cursorTime, cursor.id());
+        }
+        queryWrapper.orderBy("createTime", false)
+                .orderBy("id", false)
+                .limit(pageSize + 1);
+        return CursorPage.of(this.list(queryWrapper), pageSize,
+                app -> new KeysetCursor(app.getCreateTime().toString(), app.getId()));
+    }
+
+    @Override
+    public Page<App> pageFeaturedApp(AppQueryRequest appQueryRequest, long pageSize) {
+        String sortField = appQueryRequest.getSortField();
+        boolean defaultOrder = (StrUtil.isBlank(sortField) || "priority".equals(sortField))
+                && !"ascend".equals(appQueryRequest.getSortOrder());
+        if (defaultOrder && featuredAppSnapshot.isComplete()) {
+            return featuredAppSnapshot.page(appQueryRequest.getAppName(), appQueryRequest.getPageNum(), pageSize);
+        }
+        // 其他排序方式不常用，或精选应用超出快照上限，走数据库
+        return pageWithApproximateTotal(appQueryRequest, true, pageSize);
+    }
+
+    @Override
+    public CursorPage<App> listFeaturedAppByCursor(AppQueryRequest appQueryRequest, int pageSize) {
+        KeysetCursor cursor = KeysetCursor.decode(appQueryRequest.getCursor());
+        if (featuredAppSnapshot.isComplete()) {
+            return featuredAppSnapshot.listByCursor(appQueryRequest.getAppName(), cursor, pageSize);
+        }
+        // 精选应用超出快照上限，走数据库
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .gt("priority", 0)
+                .like("appName", appQueryRequest.getAppName());
+        if (cursor != null) {
+            Integer cursorPriority = parseCursorValue(cursor, Integer::valueOf);
+            queryWrapper.and("(priority < ? or (priority = ? and id < ?))", cursorPriority, cursorPriority, cursor.id());
+        }
+        queryWrapper.orderBy("priority", false)
+                .orderBy("id", false)
+                .limit(pageSize + 1);
+        return CursorPage.of(this.list(queryWrapper), pageSize,
+                app -> new KeysetCursor(String.valueOf(app.getPriority()), app.getId()));
+    }
+
+    private static <T> T parseCursorValue(KeysetCursor cursor, Function<String, T> parser) {
+        try {
+            return parser.apply(cursor.sortValue());
+        } catch (RuntimeException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+        }
+    }
+
     @Override
     public Flux<String> chatToGenCode(Long appId, String message, User loginUser) {
         // 1.参数校验
@@ -153,35 +254,39 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型");
         }
-        // 5. 通过校验后，添加用户消息到对话历史
-        chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
-        // 6. 调用 AI 生成代码（流式）
-        Flux<String> contentFlux = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
-        // 7. 收集AI响应内容并在完成后记录到对话历史
-        StringBuilder aiResponseBuilder = new StringBuilder();
-        return contentFlux
-                .map(chunk -> {
-                    // 收集AI响应内容
-                    aiResponseBuilder.append(chunk);
-                    return chunk;
-                })
-                .doOnComplete(() -> {
-                    // 流式响应完成后，添加AI消息到对话历史
-                    String aiResponse = aiResponseBuilder.toString();
-                    if (StrUtil.isNotBlank(aiResponse)) {
-                        chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                    }
-                })
-                .doOnError(error -> {
-                    // 如果AI回复失败，也要记录错误消息
-                    String errorMessage = "AI回复失败: " + error.getMessage();
-                    chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                });
+        // 校验同步完成；以下步骤延迟到订阅时执行，排队期间不会写入对话历史，也不会占用模型连接
+        // 订阅在虚拟线程上进行，写入用户消息、加载对话记忆等阻塞操作不占用请求线程
+        return Flux.defer(() -> {
+            // 5. 通过校验后，添加用户消息到对话历史
+            chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
+            // 6. 调用 AI 生成代码（流式）
+            Flux<String> contentFlux = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
+            // 7. 收集AI响应内容并在完成后记录到对话历史
+            StringBuilder aiResponseBuilder = new StringBuilder();
+            return contentFlux
+                    .map(chunk -> {
+                        // 收集AI响应内容
+                        aiResponseBuilder.append(chunk);
+                        return chunk;
+                    })
+                    .doOnComplete(() -> {
+                        // 流式响应完成后，添加AI消息到对话历史
+                        String aiResponse = aiResponseBuilder.toString();
+                        if (StrUtil.isNotBlank(aiResponse)) {
+                            chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
+                        }
+                    })
+                    .doOnError(error -> {
+                        // 如果AI回复失败，也要记录错误消息
+                        String errorMessage = "AI回复失败: " + error.getMessage();
+                        chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
+                    });
+        }).subscribeOn(generationIoScheduler);
 
     }
 
     @Override
-    public String deployApp(Long appId, User loginUser) {
+    public AppDeployVO deployApp(Long appId, User loginUser) {
         // 1.参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR,"未登录");
@@ -204,26 +309,67 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         File sourceCodeDir =new File(sourceCodeDirPath);
 
         ThrowUtils.throwIf(!sourceCodeDir.exists() || !sourceCodeDir.isDirectory(), ErrorCode.SYSTEM_ERROR, "应用源码目录不存在,请先生成代码");
-        // 6.创建部署目录
-        StringBuilder deployRootDir = new StringBuilder(AppConstant.CODE_DEPLOY_ROOT_DIR);
-        String appGenType = app.getCodeGenType();
-        String deployDirPath = deployRootDir.append("/").append(deployKey).toString();
-        File deployDir = new File(deployDirPath);
-        // 7.复制源码到部署目录
+        // 6.增量部署到内容寻址存储（先解析出当前发布的版本目录，避免部署过程中版本切换）
+        DeployStore.DeployResult deployResult;
         try {
-            FileUtil.copyContent(sourceCodeDir, deployDir, true);
-        } catch (Exception e) {
+            Path sourceVersionDir = sourceCodeDir.toPath().toRealPath();
+            deployResult = deployStore.deploy(sourceVersionDir, deployKey);
+        } catch (IOException e) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
         }
-        // 8.更新应用部署时间
+        // 登记部署索引，内容有变化时失效旧的文件缓存
+        if (deployResult.changed() || !deployIndex.contains(deployKey)) {
+            deployIndex.refresh(deployKey);
+        }
+        // 7.更新应用部署时间
         App updateApp = new App();
         updateApp.setId(appId);
         updateApp.setDeployKey(deployKey);
         updateApp.setDeployedTime(LocalDateTime.now());
         boolean result = updateById(updateApp);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR,"更新应用部署失败");
-        return String.format("%s/%s/", AppConstant.CODE_DEPLOY_HOST, deployKey);
+        AppDeployVO appDeployVO = new AppDeployVO();
+        appDeployVO.setDeployUrl(String.format("%s/%s/", AppConstant.CODE_DEPLOY_HOST, deployKey));
+        appDeployVO.setChanged(deployResult.changed());
+        appDeployVO.setFilesCopied(deployResult.filesCopied());
+        appDeployVO.setFilesRemoved(deployResult.filesRemoved());
+        appDeployVO.setBytesCopied(deployResult.bytesCopied());
+        appDeployVO.setDurationMicros(TimeUnit.NANOSECONDS.toMicros(deployResult.durationNanos()));
+        log.info("应用 {} 部署完成，deployKey: {}, changed: {}, bytesCopied: {}, duration: {}us", appId, deployKey,
+                appDeployVO.getChanged(), appDeployVO.getBytesCopied(), appDeployVO.getDurationMicros());
+        return appDeployVO;
     }
+    /**
+     * 从应用缓存读取（短时过期，修改、删除时失效），未命中再查数据库
+     *
+     * @param id 应用ID
+     * @return 应用副本，调用方修改不影响缓存
+     */
+    @Override
+    public App getById(Serializable id) {
+        if (id == null) {
+            return null;
+        }
+        App app = appCache.get(Convert.toLong(id), super::getById);
+        return app == null ? null : BeanUtil.copyProperties(app, App.class);
+    }
+
+    @Override
+    public boolean updateById(App entity, boolean ignoreNulls) {
+        boolean result = super.updateById(entity, ignoreNulls);
+        if (entity != null && entity.getId() != null) {
+            appCache.invalidate(entity.getId());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean removeByIds(Collection<? extends Serializable> ids) {
+        boolean result = super.removeByIds(ids);
+        ids.forEach(id -> appCache.invalidate(Convert.toLong(id)));
+        return result;
+    }
+
     /**
      * 删除应用时关联删除对话历史
      *
@@ -248,7 +394,9 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             log.error("删除应用关联对话历史失败: {}", e.getMessage());
         }
         // 删除应用
-        return super.removeById(id);
+        boolean result = super.removeById(id);
+        appCache.invalidate(appId);
+        return result;
     }
 
 }
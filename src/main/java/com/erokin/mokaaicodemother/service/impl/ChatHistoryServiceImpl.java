@@ -2,22 +2,26 @@ package com.erokin.mokaaicodemother.service.impl;
 
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.StrUtil;
+import com.erokin.mokaaicodemother.common.CursorPage;
+import com.erokin.mokaaicodemother.common.KeysetCursor;
 import com.erokin.mokaaicodemother.constant.UserConstant;
+import com.erokin.mokaaicodemother.exception.BusinessException;
 import com.erokin.mokaaicodemother.exception.ErrorCode;
 import com.erokin.mokaaicodemother.exception.ThrowUtils;
+import com.erokin.mokaaicodemother.manager.ChatHistoryWriteBuffer;
 import com.erokin.mokaaicodemother.model.dto.chatHistory.ChatHistoryQueryRequest;
 import com.erokin.mokaaicodemother.model.entity.App;
 import com.erokin.mokaaicodemother.model.entity.User;
 import com.erokin.mokaaicodemother.model.enums.ChatHistoryMessageTypeEnum;
 import com.erokin.mokaaicodemother.model.vo.ChatHistoryVO;
 import com.erokin.mokaaicodemother.service.AppService;
-import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
 import com.erokin.mokaaicodemother.model.entity.ChatHistory;
 import com.erokin.mokaaicodemother.mapper.ChatHistoryMapper;
 import com.erokin.mokaaicodemother.service.ChatHistoryService;
 import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import jakarta.annotation.Resource;
@@ -26,6 +30,8 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -41,6 +47,9 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     @Lazy
     private AppService appService;
 
+    @Resource
+    private ChatHistoryWriteBuffer chatHistoryWriteBuffer;
+
     @Override
     public boolean addChatMessage(Long appId, String message, String messageType, Long userId) {
         return addChatMessage(appId, message, messageType, userId, null);
@@ -62,9 +71,9 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
                 .messageType(messageType)
                 .parentId(parentId)
                 .build();
-        this.save(chat);
-
-        return false;
+        // 交给写缓冲批量落库，不阻塞生成链路
+        chatHistoryWriteBuffer.add(chat);
+        return true;
     }
 
     @Override
@@ -118,6 +127,8 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
 
     @Override
     public boolean deleteByAppId(Long appId) {
+        // 先丢弃尚未写入的消息，避免删除后又被写回
+        chatHistoryWriteBuffer.discard(appId);
         QueryWrapper qw = QueryWrapper.create()
                 .eq("appId", appId);
         return this.remove(qw);
@@ -164,9 +175,8 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     }
 
     @Override
-    public Page<ChatHistory> listAppChatHistoryByPage(Long appId, int pageSize,
-                                                      LocalDateTime lastCreateTime,
-                                                      User loginUser) {
+    public CursorPage<ChatHistory> listAppChatHistoryByCursor(Long appId, int pageSize, KeysetCursor cursor,
+                                                             User loginUser) {
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID不能为空");
         ThrowUtils.throwIf(pageSize <= 0 || pageSize > 50, ErrorCode.PARAMS_ERROR, "页面大小必须在1-50之间");
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR);
@@ -176,55 +186,80 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         boolean isAdmin = UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole());
         boolean isCreator = app.getUserId().equals(loginUser.getId());
         ThrowUtils.throwIf(!isAdmin && !isCreator, ErrorCode.NO_AUTH_ERROR, "无权查看该应用的对话历史");
-        // 构建查询条件
-        ChatHistoryQueryRequest queryRequest = new ChatHistoryQueryRequest();
-        queryRequest.setAppId(appId);
-        queryRequest.setLastCreateTime(lastCreateTime);
-        QueryWrapper queryWrapper = this.getQueryWrapper(queryRequest);
-        // 查询数据
-        return this.page(Page.of(1, pageSize), queryWrapper);
+        // 还有未写入的消息时先写入，保证能查到刚发送的消息
+        flushIfPending(appId);
+        // 键集分页：(createTime, id) 严格小于游标，走 (appId, createTime, id) 索引，不执行 COUNT
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .eq("appId", appId);
+        if (cursor != null) {
+            LocalDateTime cursorTime = parseCursorTime(cursor);
+            queryWrapper.and("(createTime < ? or (createTime = ? and id < ?))", cursorTime, cursorTime, cursor.id());
+        }
+        queryWrapper.orderBy("createTime", false)
+                .orderBy("id", false)
+                .limit(pageSize + 1);
+        List<ChatHistory> rows = this.list(queryWrapper);
+        return CursorPage.of(rows, pageSize,
+                chatHistory -> new KeysetCursor(chatHistory.getCreateTime().toString(), chatHistory.getId()));
+    }
+
+    private static LocalDateTime parseCursorTime(KeysetCursor cursor) {
+        try {
+            return LocalDateTime.parse(cursor.sortValue());
+        } catch (DateTimeParseException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+        }
     }
 
     //加载对话历史
     @Override
     public int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount){
+        List<ChatMessage> chatMessages = loadRecentChatMessages(appId, maxCount);
+        // 先清理历史缓存，防止重复加载
+        chatMemory.clear();
+        chatMessages.forEach(chatMemory::add);
+        return chatMessages.size();
+    }
+
+    @Override
+    public List<ChatMessage> loadRecentChatMessages(Long appId, int maxCount) {
+        List<ChatMessage> chatMessages = new ArrayList<>();
         try{
+            flushIfPending(appId);
             QueryWrapper queryWrapper = QueryWrapper.create()
                     .eq("appId", appId)
                     .orderBy("createTime", false)
-                    .limit(1,maxCount)
-                    ;
+                    .orderBy("id", false)
+                    .limit(maxCount + 1);
             List<ChatHistory> chatHistoryList = this.list(queryWrapper);
             if(CollectionUtil.isEmpty(chatHistoryList)){
-                return 0;
+                return chatMessages;
             }
-            //反转列表，让旧的信息在前
-            chatHistoryList.reversed();
-            // 按时间顺序添加到记忆中
-            int loadedCount = 0;
-            // 先清理历史缓存，防止重复加载
-            chatMemory.clear();
-            for (ChatHistory chatHistory : chatHistoryList) {
-                if(chatHistory.getMessageType()
-                        .equals(ChatHistoryMessageTypeEnum.USER.getValue())){
-                    chatMemory.add(UserMessage.from(chatHistory.getMessage()));
-                    ++loadedCount;
-                }
-                if(chatHistory.getMessageType()
-                        .equals(ChatHistoryMessageTypeEnum.AI.getValue())){
-                    chatMemory.add(AiMessage.from(chatHistory.getMessage()));
-                    ++loadedCount;
+            // 最新一条是本轮刚写入的用户消息时跳过，由 AI 服务在调用时自行加入记忆
+            if (ChatHistoryMessageTypeEnum.USER.getValue().equals(chatHistoryList.getFirst().getMessageType())) {
+                chatHistoryList = chatHistoryList.subList(1, chatHistoryList.size());
+            } else if (chatHistoryList.size() > maxCount) {
+                chatHistoryList = chatHistoryList.subList(0, maxCount);
+            }
+            //反转列表，让旧的信息在前，按时间顺序添加到记忆中
+            for (ChatHistory chatHistory : chatHistoryList.reversed()) {
+                if(ChatHistoryMessageTypeEnum.USER.getValue().equals(chatHistory.getMessageType())){
+                    chatMessages.add(UserMessage.from(chatHistory.getMessage()));
+                } else if(ChatHistoryMessageTypeEnum.AI.getValue().equals(chatHistory.getMessageType())){
+                    chatMessages.add(AiMessage.from(chatHistory.getMessage()));
                 }
-
             }
-            log.info("成功对appId：{}加载了{}条对话历史",appId,loadedCount);
-            return loadedCount;
+            log.info("成功对appId：{}加载了{}条对话历史",appId,chatMessages.size());
+            return chatMessages;
         } catch (Exception e) {
             log.error("加载对话历史失败：appId:{} error:{}",appId,e.getMessage());
-            return 0;
+            return new ArrayList<>();
         }
     }
 
-
-
+    private void flushIfPending(Long appId) {
+        if (chatHistoryWriteBuffer.hasPending(appId)) {
+            chatHistoryWriteBuffer.flush();
+        }
+    }
 }
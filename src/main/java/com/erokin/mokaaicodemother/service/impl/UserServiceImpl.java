@@ -2,6 +2,7 @@ package com.erokin.mokaaicodemother.service.impl;
 import java.time.LocalDateTime;
 
 import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.convert.Convert;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
@@ -11,19 +12,24 @@ import com.erokin.mokaaicodemother.model.dto.user.UserQueryRequest;
 import com.erokin.mokaaicodemother.model.enums.UserRoleEnum;
 import com.erokin.mokaaicodemother.model.vo.LoginUserVO;
 import com.erokin.mokaaicodemother.model.vo.UserVO;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
 import com.erokin.mokaaicodemother.model.entity.User;
 import com.erokin.mokaaicodemother.mapper.UserMapper;
 import com.erokin.mokaaicodemother.service.UserService;
+import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static com.erokin.mokaaicodemother.constant.UserConstant.LOGIN_USER_REQUEST_ATTRIBUTE;
 import static com.erokin.mokaaicodemother.constant.UserConstant.USER_LOGIN_STATE;
 
 /**
@@ -34,6 +40,8 @@ import static com.erokin.mokaaicodemother.constant.UserConstant.USER_LOGIN_STATE
 @Service
 public class UserServiceImpl extends ServiceImpl<UserMapper, User>  implements UserService{
 
+    @Resource
+    private Cache<Long, User> userCache;
 
     @Override
     public long userRegister(String userAccount, String userPassword, String checkPassword) {
@@ -166,6 +174,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>  implements U
         }
         // 3. 记录用户的登录态
         request.getSession().setAttribute(USER_LOGIN_STATE, user);
+        userCache.put(user.getId(), user);
         //4.返回用户信息
         LoginUserVO loginUserVO = getLoginUserVO(user);
 
@@ -175,21 +184,52 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>  implements U
 
     @Override
     public User getLoginUser(HttpServletRequest request) {
+        // 同一请求内已查询过直接返回
+        Object memo = request.getAttribute(LOGIN_USER_REQUEST_ATTRIBUTE);
+        if (memo instanceof User memoUser) {
+            return memoUser;
+        }
         // 先判断是否已登录
         Object userObj = request.getSession().getAttribute(USER_LOGIN_STATE);
         User currentUser = (User) userObj;
         if (currentUser == null || currentUser.getId() == null) {
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
-        // 从数据库查询（追求性能的话可以注释，直接返回上述结果）
+        // 从用户缓存读取（短时过期，修改、删除时失效），未命中再查数据库
         long userId = currentUser.getId();
-        currentUser = this.getById(userId);
-        if (currentUser == null) {
+        User cachedUser = userCache.get(userId, this::getById);
+        if (cachedUser == null) {
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
+        // 返回副本，避免调用方修改缓存中的对象
+        currentUser = BeanUtil.copyProperties(cachedUser, User.class);
+        request.setAttribute(LOGIN_USER_REQUEST_ATTRIBUTE, currentUser);
         return currentUser;
     }
 
+    @Override
+    public boolean updateById(User entity, boolean ignoreNulls) {
+        boolean result = super.updateById(entity, ignoreNulls);
+        if (entity != null && entity.getId() != null) {
+            userCache.invalidate(entity.getId());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        userCache.invalidate(Convert.toLong(id));
+        return result;
+    }
+
+    @Override
+    public boolean removeByIds(Collection<? extends Serializable> ids) {
+        boolean result = super.removeByIds(ids);
+        ids.forEach(id -> userCache.invalidate(Convert.toLong(id)));
+        return result;
+    }
+
 
     /**
      * 登录参数校验
@@ -27,7 +27,7 @@ class AiCodeGeneratorServiceTest {
 
     @Test
     void generateMultiFileCode() {
-        MultiFileCodeResult generatedMultiFileCode = aiCodeGeneratorService.generateMultiFileCode("生成一个Erokin的工作记录小工具");
+        MultiFileCodeResult generatedMultiFileCode = aiCodeGeneratorService.generateMultiFileCode(1, "生成一个Erokin的工作记录小工具");
         assertNotNull(generatedMultiFileCode);
     }
 }
\ No newline at end of file
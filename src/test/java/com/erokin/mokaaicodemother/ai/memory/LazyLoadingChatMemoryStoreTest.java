@@ -0,0 +1,48 @@
+package com.erokin.mokaaicodemother.ai.memory;
+
+import com.erokin.mokaaicodemother.service.ChatHistoryService;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LazyLoadingChatMemoryStoreTest {
+
+    @Test
+    void hydrateFromDatabaseOnlyOnceOnMiss() {
+        InMemoryChatMemoryStore redis = new InMemoryChatMemoryStore();
+        ChatHistoryService chatHistoryService = mock(ChatHistoryService.class);
+        List<ChatMessage> history = List.of(UserMessage.from("hi"), AiMessage.from("hello"));
+        when(chatHistoryService.loadRecentChatMessages(1L, 20)).thenReturn(history);
+        LazyLoadingChatMemoryStore store = new LazyLoadingChatMemoryStore(redis, chatHistoryService, 20, Duration.ofHours(1));
+
+        assertEquals(history, store.getMessages(1L));
+        assertEquals(history, redis.getMessages(1L));
+        assertEquals(history, store.getMessages(1L));
+        verify(chatHistoryService, times(1)).loadRecentChatMessages(1L, 20);
+    }
+
+    @Test
+    void skipDatabaseWhenRedisHitOrAlreadyEmpty() {
+        InMemoryChatMemoryStore redis = new InMemoryChatMemoryStore();
+        redis.updateMessages(2L, List.of(UserMessage.from("cached")));
+        ChatHistoryService chatHistoryService = mock(ChatHistoryService.class);
+        when(chatHistoryService.loadRecentChatMessages(anyLong(), anyInt())).thenReturn(List.of());
+        LazyLoadingChatMemoryStore store = new LazyLoadingChatMemoryStore(redis, chatHistoryService, 20, Duration.ofHours(1));
+
+        assertEquals(1, store.getMessages(2L).size());
+        assertTrue(store.getMessages(3L).isEmpty());
+        assertTrue(store.getMessages(3L).isEmpty());
+        store.deleteMessages(2L);
+        assertTrue(store.getMessages(2L).isEmpty());
+        verify(chatHistoryService, times(1)).loadRecentChatMessages(3L, 20);
+        verify(chatHistoryService, never()).loadRecentChatMessages(eq(2L), anyInt());
+    }
+}
@@ -0,0 +1,46 @@
+package com.erokin.mokaaicodemother.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class NearCacheChatMemoryStoreTest {
+
+    @Test
+    void serveReadsFromLocalCacheAndWriteThrough() {
+        ChatMemoryStore redis = spy(new InMemoryChatMemoryStore());
+        NearCacheChatMemoryStore store = new NearCacheChatMemoryStore(redis, null, 100, Duration.ofMinutes(1));
+        List<ChatMessage> messages = List.of(UserMessage.from("hi"));
+        store.updateMessages(1L, messages);
+        verify(redis).updateMessages(1L, messages);
+
+        assertEquals(messages, store.getMessages(1L));
+        assertEquals(messages, store.getMessages(1L));
+        verify(redis, never()).getMessages(any());
+        store.close();
+    }
+
+    @Test
+    void invalidateOnNotificationFromOtherNode() {
+        InMemoryChatMemoryStore redis = new InMemoryChatMemoryStore();
+        NearCacheChatMemoryStore store = new NearCacheChatMemoryStore(redis, null, 100, Duration.ofMinutes(1));
+        store.updateMessages(1L, List.of(UserMessage.from("old")));
+        // 其他节点直接更新了 Redis
+        List<ChatMessage> latest = List.of(UserMessage.from("new"));
+        redis.updateMessages(1L, latest);
+
+        store.handleInvalidation(store.getNodeId() + ":1");
+        assertNotEquals(latest, store.getMessages(1L));
+        store.handleInvalidation("other-node:1");
+        assertEquals(latest, store.getMessages(1L));
+        store.close();
+    }
+}
@@ -0,0 +1,31 @@
+package com.erokin.mokaaicodemother.common;
+
+import com.erokin.mokaaicodemother.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorPageTest {
+
+    @Test
+    void buildNextCursorFromExtraRow() {
+        CursorPage<Long> page = CursorPage.of(List.of(5L, 4L, 3L), 2, id -> new KeysetCursor("2025-01-01T10:00:00", id));
+        assertEquals(List.of(5L, 4L), page.getRecords());
+        assertTrue(page.isHasMore());
+        KeysetCursor cursor = KeysetCursor.decode(page.getNextCursor());
+        assertEquals("2025-01-01T10:00:00", cursor.sortValue());
+        assertEquals(4L, cursor.id());
+
+        CursorPage<Long> last = CursorPage.of(List.of(2L), 2, id -> new KeysetCursor("x", id));
+        assertFalse(last.isHasMore());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void rejectMalformedCursor() {
+        assertNull(KeysetCursor.decode(null));
+        assertThrows(BusinessException.class, () -> KeysetCursor.decode("not-a-cursor"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.erokin.mokaaicodemother.config;
+
+import com.erokin.mokaaicodemother.ai.AiCodeGeneratorService;
+import com.erokin.mokaaicodemother.ai.memory.NearCacheChatMemoryStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CaffeineCacheConfigTest {
+
+    @Test
+    void evictByWeightAfterMemoriesGrow() {
+        CaffeineCacheConfig config = new CaffeineCacheConfig();
+        config.setMaximumWeightKb(100);
+        config.setEntryWeightKb(1);
+        config.setDefaultMemoryWeightKb(1);
+        NearCacheChatMemoryStore store = new NearCacheChatMemoryStore(new InMemoryChatMemoryStore(), null, 100,
+                Duration.ofMinutes(1));
+        Cache<Long, ChatMemory> cache = config.chatMemoryCache(store, new SimpleMeterRegistry(),
+                mock(AiCodeGeneratorService.class));
+        for (long appId = 1; appId <= 10; appId++) {
+            cache.put(appId, mock(ChatMemory.class));
+        }
+        cache.cleanUp();
+        assertEquals(10, cache.estimatedSize());
+        assertEquals(20, weightedSize(cache));
+
+        // 每个记忆窗口约 20KB，10 个超过 100KB 上限
+        String text = "x".repeat(10 * 1024);
+        for (long appId = 1; appId <= 10; appId++) {
+            store.updateMessages(appId, List.of(UserMessage.from(text)));
+        }
+        cache.cleanUp();
+        assertTrue(cache.estimatedSize() < 10, "size: " + cache.estimatedSize());
+        assertTrue(weightedSize(cache) <= 100, "weight: " + weightedSize(cache));
+        store.close();
+    }
+
+    private static long weightedSize(Cache<Long, ChatMemory> cache) {
+        return cache.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+    }
+}
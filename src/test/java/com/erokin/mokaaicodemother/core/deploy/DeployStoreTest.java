@@ -0,0 +1,103 @@
+package com.erokin.mokaaicodemother.core.deploy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeployStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shareUnchangedFilesAndCollectOrphans() throws IOException {
+        Path deployRoot = tempDir.resolve("deploy");
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        Files.writeString(source.resolve("index.html"), "<p>same</p>");
+        Files.writeString(source.resolve("style.css"), "v1");
+        DeployStore deployStore = new DeployStore(deployRoot.toString(), 1, Duration.ofDays(1));
+
+        assertTrue(deployStore.deploy(source, "abc123").changed());
+        Path deployed = deployRoot.resolve("abc123");
+        Object firstIndex = Files.getAttribute(deployed.resolve("index.html"), "unix:ino");
+
+        Files.writeString(source.resolve("style.css"), "v2");
+        DeployStore.DeployResult result = deployStore.deploy(source, "abc123");
+        assertEquals(1, result.filesCopied());
+        assertEquals(2, result.bytesCopied());
+        assertEquals("v2", Files.readString(deployed.resolve("style.css")));
+        assertEquals(firstIndex, Files.getAttribute(deployed.resolve("index.html"), "unix:ino"));
+
+        // 旧版本已被清理，只剩 style.css v1 的对象无人引用
+        assertEquals(1, deployStore.gc());
+        assertEquals(0, deployStore.gc());
+        assertEquals("<p>same</p>", Files.readString(deployed.resolve("index.html")));
+    }
+
+    @Test
+    void skipUnchangedAndRemoveDeletedFiles() throws IOException {
+        Path deployRoot = tempDir.resolve("deploy");
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        Files.writeString(source.resolve("index.html"), "<p>1</p>");
+        Files.writeString(source.resolve("script.js"), "js");
+        DeployStore deployStore = new DeployStore(deployRoot.toString(), 2, Duration.ofDays(1));
+        deployStore.deploy(source, "key001");
+        Path version = deployRoot.resolve("key001").toRealPath();
+
+        DeployStore.DeployResult unchanged = deployStore.deploy(source, "key001");
+        assertFalse(unchanged.changed());
+        assertEquals(0, unchanged.bytesCopied());
+        assertEquals(version, deployRoot.resolve("key001").toRealPath());
+
+        // 重新加载清单后仍能识别未变化的内容
+        DeployStore reloaded = new DeployStore(deployRoot.toString(), 2, Duration.ofDays(1));
+        assertFalse(reloaded.deploy(source, "key001").changed());
+
+        Files.delete(source.resolve("script.js"));
+        DeployStore.DeployResult removed = reloaded.deploy(source, "key001");
+        assertTrue(removed.changed());
+        assertEquals(0, removed.filesCopied());
+        assertEquals(1, removed.filesRemoved());
+        assertFalse(Files.exists(deployRoot.resolve("key001").resolve("script.js")));
+        assertTrue(Files.exists(version.resolve("script.js")));
+    }
+
+    @Test
+    void copyFromSourceAndCollectObjectsWithoutHardLinks() throws IOException {
+        Path deployRoot = tempDir.resolve("deploy");
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        Files.writeString(source.resolve("index.html"), "<p>same</p>");
+        Files.writeString(source.resolve("style.css"), "v1");
+        DeployStore deployStore = new DeployStore(deployRoot.toString(), 1, Duration.ofDays(1));
+        deployStore.deploy(source, "nolink");
+        Path objectsDir = deployRoot.resolve(".objects");
+        assertEquals(2, countFiles(objectsDir));
+
+        // 模拟文件系统不支持硬链接
+        ReflectionTestUtils.setField(deployStore, "hardLinkSupported", false);
+        Files.writeString(source.resolve("style.css"), "v2");
+        DeployStore.DeployResult result = deployStore.deploy(source, "nolink");
+        assertTrue(result.changed());
+        assertEquals(2, result.filesCopied());
+        assertEquals("v2", Files.readString(deployRoot.resolve("nolink").resolve("style.css")));
+        // 新内容不再写入对象目录，已有对象全部清理
+        assertEquals(2, countFiles(objectsDir));
+        assertEquals(2, deployStore.gc());
+        assertEquals(0, countFiles(objectsDir));
+        assertEquals("<p>same</p>", Files.readString(deployRoot.resolve("nolink").resolve("index.html")));
+    }
+
+    private static long countFiles(Path dir) throws IOException {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            return stream.filter(Files::isRegularFile).count();
+        }
+    }
+}
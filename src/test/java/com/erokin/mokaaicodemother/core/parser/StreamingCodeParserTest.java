@@ -0,0 +1,110 @@
+package com.erokin.mokaaicodemother.core.parser;
+
+import com.erokin.mokaaicodemother.ai.model.HtmlCodeResult;
+import com.erokin.mokaaicodemother.ai.model.MultiFileCodeResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCodeParserTest {
+
+    private static final String MULTI_FILE_RESPONSE = """
+            下面是生成的代码：
+            ```html
+            <div class="a">`x` and ``y``</div>
+            ```
+            ```css
+            .a { color: red; }
+            ```
+            ```javascript
+            const s = `tpl ${1}`;
+            ```
+            完成。
+            """;
+
+    @Test
+    void parseMultiFileAcrossEveryChunkBoundary() {
+        for (int split = 1; split < MULTI_FILE_RESPONSE.length(); split++) {
+            StreamingCodeParser parser = new StreamingCodeParser();
+            List<StreamingCodeParser.CodeSegment> segments = new ArrayList<>();
+            segments.addAll(parser.feed(MULTI_FILE_RESPONSE.substring(0, split)));
+            segments.addAll(parser.feed(MULTI_FILE_RESPONSE.substring(split)));
+            assertEquals(3, segments.size(), "split at " + split);
+            MultiFileCodeResult result = new MutiFileCodeParser().parserCode(parser);
+            assertEquals("<div class=\"a\">`x` and ``y``</div>", result.getHtmlCode());
+            assertEquals(".a { color: red; }", result.getCssCode());
+            assertEquals("const s = `tpl ${1}`;", result.getJsCode());
+        }
+    }
+
+    @Test
+    void notifyListenerIncrementally() {
+        StringBuilder streamed = new StringBuilder();
+        List<StreamingCodeParser.BlockType> started = new ArrayList<>();
+        StreamingCodeParser parser = new StreamingCodeParser(new StreamingCodeParser.BlockListener() {
+            @Override
+            public void onBlockStart(StreamingCodeParser.BlockType type) {
+                started.add(type);
+            }
+
+            @Override
+            public void onBlockContent(StreamingCodeParser.BlockType type, CharSequence content) {
+                if (type == StreamingCodeParser.BlockType.HTML) {
+                    streamed.append(content);
+                }
+            }
+        });
+        for (int i = 0; i < MULTI_FILE_RESPONSE.length(); i += 3) {
+            parser.feed(MULTI_FILE_RESPONSE.substring(i, Math.min(i + 3, MULTI_FILE_RESPONSE.length())));
+        }
+        assertEquals(List.of(StreamingCodeParser.BlockType.HTML, StreamingCodeParser.BlockType.CSS,
+                StreamingCodeParser.BlockType.JS), started);
+        assertEquals(parser.getCode(StreamingCodeParser.BlockType.HTML), streamed.toString());
+    }
+
+    @Test
+    void parseCharByChar() {
+        StreamingCodeParser parser = new StreamingCodeParser();
+        for (char c : MULTI_FILE_RESPONSE.toCharArray()) {
+            parser.feed(String.valueOf(c));
+        }
+        assertEquals(".a { color: red; }\n", parser.getCode(StreamingCodeParser.BlockType.CSS));
+        assertFalse(parser.isInBlock());
+    }
+
+    @Test
+    void keepFirstBlockAndSkipOtherLanguages() {
+        String content = "```json\n{\"a\":1}\n```\n```HTML\n<p>1</p>\n```\n```html\n<p>2</p>\n```";
+        HtmlCodeResult result = new HtmlCodeParser().parserCode(content);
+        assertEquals("<p>1</p>", result.getHtmlCode());
+    }
+
+    @Test
+    void fallbackToRawContentWithoutHtmlBlock() {
+        HtmlCodeResult result = new HtmlCodeParser().parserCode("  <p>plain</p>\n");
+        assertEquals("<p>plain</p>", result.getHtmlCode());
+    }
+
+    @Test
+    void ignoreInlineTripleBackticksBeforeRealFence() {
+        String content = "用 ``` 包裹代码，例如 ```html 这样。\n  ```html\n<p>ok</p>\n```\n";
+        for (int split = 1; split < content.length(); split++) {
+            StreamingCodeParser parser = new StreamingCodeParser();
+            parser.feed(content.substring(0, split));
+            parser.feed(content.substring(split));
+            assertEquals("<p>ok</p>\n", parser.getCode(StreamingCodeParser.BlockType.HTML), "split at " + split);
+        }
+        assertEquals("<p>ok</p>", new HtmlCodeParser().parserCode(content).getHtmlCode());
+    }
+
+    @Test
+    void ignoreUnterminatedBlock() {
+        StreamingCodeParser parser = new StreamingCodeParser();
+        parser.feed("```css\n.a{}");
+        assertTrue(parser.isInBlock());
+        assertNull(parser.getCode(StreamingCodeParser.BlockType.CSS));
+    }
+}
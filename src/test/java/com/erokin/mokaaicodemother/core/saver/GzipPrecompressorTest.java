@@ -0,0 +1,37 @@
+package com.erokin.mokaaicodemother.core.saver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GzipPrecompressorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void compressTextFilesOnly() throws IOException {
+        String html = "<div>hello</div>\n".repeat(100);
+        Files.writeString(dir.resolve("index.html"), html);
+        Files.writeString(dir.resolve("tiny.css"), ".a{}");
+        Files.write(dir.resolve("logo.png"), new byte[1024]);
+
+        GzipPrecompressor.compressDir(dir);
+
+        Path gzipFile = dir.resolve("index.html.gz");
+        assertTrue(Files.size(gzipFile) < html.length());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gzipFile))) {
+            assertEquals(html, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertFalse(Files.exists(dir.resolve("tiny.css.gz")));
+        assertFalse(Files.exists(dir.resolve("logo.png.gz")));
+    }
+}
@@ -0,0 +1,64 @@
+package com.erokin.mokaaicodemother.core.saver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionedDirectoryTest {
+
+    @TempDir
+    Path rootDir;
+
+    @Test
+    void publishSwapsLinkAndKeepsLatestVersions() throws IOException {
+        VersionedDirectory versionedDirectory = new VersionedDirectory(rootDir.toString(), 2);
+        List<String> published = new ArrayList<>();
+        versionedDirectory.addPublishListener(published::add);
+        for (int i = 1; i <= 4; i++) {
+            Path staging = versionedDirectory.createStaging("HTML_1");
+            Files.writeString(staging.resolve("index.html"), "v" + i);
+            versionedDirectory.publish("HTML_1", staging);
+        }
+        Path link = rootDir.resolve("HTML_1");
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals("v4", Files.readString(link.resolve("index.html")));
+        assertEquals(2, versionedDirectory.listVersions("HTML_1").size());
+
+        assertTrue(versionedDirectory.rollback("HTML_1"));
+        assertEquals("v3", Files.readString(link.resolve("index.html")));
+        assertEquals(5, published.size());
+    }
+
+    @Test
+    void migrateLegacyDirectoryOnFirstPublish() throws IOException {
+        Path legacyDir = Files.createDirectories(rootDir.resolve("MULTI_FILE_2"));
+        Files.writeString(legacyDir.resolve("index.html"), "legacy");
+        VersionedDirectory versionedDirectory = new VersionedDirectory(rootDir.toString(), 5);
+        Path staging = versionedDirectory.createStaging("MULTI_FILE_2");
+        versionedDirectory.linkLive("MULTI_FILE_2", staging);
+        Files.writeString(staging.resolve("index.html"), "new");
+        assertEquals("new", Files.readString(rootDir.resolve("MULTI_FILE_2" + VersionedDirectory.LIVE_SUFFIX).resolve("index.html")));
+
+        versionedDirectory.publish("MULTI_FILE_2", staging);
+        assertEquals("new", Files.readString(rootDir.resolve("MULTI_FILE_2").resolve("index.html")));
+        assertFalse(Files.exists(rootDir.resolve("MULTI_FILE_2" + VersionedDirectory.LIVE_SUFFIX)));
+        assertTrue(versionedDirectory.rollback("MULTI_FILE_2"));
+        assertEquals("legacy", Files.readString(rootDir.resolve("MULTI_FILE_2").resolve("index.html")));
+    }
+
+    @Test
+    void discardRemovesStaging() {
+        VersionedDirectory versionedDirectory = new VersionedDirectory(rootDir.toString(), 5);
+        Path staging = versionedDirectory.createStaging("HTML_3");
+        versionedDirectory.discard("HTML_3", staging);
+        assertFalse(Files.exists(staging));
+        assertFalse(Files.exists(rootDir.resolve("HTML_3")));
+    }
+}
@@ -0,0 +1,91 @@
+package com.erokin.mokaaicodemother.core.scheduler;
+
+import com.erokin.mokaaicodemother.exception.BusinessException;
+import com.erokin.mokaaicodemother.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationSchedulerTest {
+
+    @Test
+    void queueWhenPermitsExhaustedAndResumeOnRelease() {
+        GenerationScheduler scheduler = new GenerationScheduler(1, 1, 10, 10);
+        Sinks.Many<String> first = Sinks.many().unicast().onBackpressureBuffer();
+        List<String> firstReceived = new ArrayList<>();
+        List<String> secondReceived = new ArrayList<>();
+        scheduler.schedule(1L, first.asFlux(), position -> "queue:" + position).subscribe(firstReceived::add);
+        scheduler.schedule(2L, Flux.just("b"), position -> "queue:" + position).subscribe(secondReceived::add);
+        assertEquals(1, scheduler.getRunningCount());
+        assertEquals(List.of("queue:1"), secondReceived);
+
+        first.tryEmitNext("a");
+        first.tryEmitComplete();
+        assertEquals(List.of("a"), firstReceived);
+        assertEquals(List.of("queue:1", "b"), secondReceived);
+        assertEquals(0, scheduler.getRunningCount());
+        assertEquals(0, scheduler.getWaitingCount());
+    }
+
+    @Test
+    void rotateBetweenUsers() {
+        GenerationScheduler scheduler = new GenerationScheduler(1, 1, 10, 10);
+        Sinks.Many<String> blocker = Sinks.many().unicast().onBackpressureBuffer();
+        List<String> order = new ArrayList<>();
+        scheduler.schedule(1L, blocker.asFlux(), position -> "").subscribe();
+        scheduler.schedule(1L, Flux.just("u1-a"), position -> "").subscribe(order::add);
+        scheduler.schedule(1L, Flux.just("u1-b"), position -> "").subscribe(order::add);
+        scheduler.schedule(2L, Flux.just("u2-a"), position -> "").subscribe(order::add);
+        blocker.tryEmitComplete();
+        order.removeIf(String::isEmpty);
+        assertEquals(List.of("u1-a", "u2-a", "u1-b"), order);
+    }
+
+    @Test
+    void rejectWhenQueueFull() {
+        GenerationScheduler scheduler = new GenerationScheduler(1, 1, 1, 1);
+        scheduler.schedule(1L, Flux.never(), position -> "").subscribe();
+        scheduler.schedule(2L, Flux.never(), position -> "").subscribe();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        scheduler.schedule(3L, Flux.never(), position -> "").subscribe(value -> {
+        }, error::set);
+        assertInstanceOf(BusinessException.class, error.get());
+        assertEquals(ErrorCode.TOO_MANY_REQUEST.getCode(), ((BusinessException) error.get()).getCode());
+        assertEquals(1, scheduler.getWaitingCount());
+    }
+
+    @Test
+    void admitOtherUserWhenQueueHoldsOnlyPerUserBlockedTickets() {
+        GenerationScheduler scheduler = new GenerationScheduler(2, 1, 1, 1);
+        scheduler.schedule(1L, Flux.never(), position -> "").subscribe();
+        // 用户 1 的第二个请求受单用户上限阻塞，占满队列
+        scheduler.schedule(1L, Flux.never(), position -> "").subscribe();
+        assertEquals(1, scheduler.getWaitingCount());
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<String> received = new ArrayList<>();
+        scheduler.schedule(2L, Flux.just("u2"), position -> "queue:" + position).subscribe(received::add, error::set);
+        assertNull(error.get());
+        assertEquals(List.of("u2"), received);
+        assertEquals(1, scheduler.getWaitingCount());
+    }
+
+    @Test
+    void cancelReleasesPermit() {
+        GenerationScheduler scheduler = new GenerationScheduler(1, 1, 10, 10);
+        Disposable running = scheduler.schedule(1L, Flux.never(), position -> "").subscribe();
+        Disposable waiting = scheduler.schedule(2L, Flux.never(), position -> "").subscribe();
+        assertEquals(1, scheduler.getWaitingCount());
+        waiting.dispose();
+        assertEquals(0, scheduler.getWaitingCount());
+        running.dispose();
+        assertEquals(0, scheduler.getRunningCount());
+    }
+}
@@ -0,0 +1,43 @@
+package com.erokin.mokaaicodemother.core.stream;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkCoalescerTest {
+
+    @Test
+    void flushWhenMaxBytesReached() {
+        ChunkCoalescer coalescer = new ChunkCoalescer(4, Duration.ofHours(1), Schedulers.parallel());
+        List<String> frames = coalescer.coalesce(Flux.just("a", "b", "cd", "e", "f"))
+                .collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("abcd", "ef"), frames);
+    }
+
+    @Test
+    void flushWhenMaxDelayElapsed() {
+        ChunkCoalescer coalescer = new ChunkCoalescer(1024, Duration.ofMillis(20), Schedulers.parallel());
+        Flux<String> source = Flux.concat(Flux.just("a", "b"), Flux.just("c").delaySubscription(Duration.ofMillis(200)));
+        List<String> frames = coalescer.coalesce(source).collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("ab", "c"), frames);
+    }
+
+    @Test
+    void emitBufferedContentBeforeError() {
+        ChunkCoalescer coalescer = new ChunkCoalescer(1024, Duration.ofHours(1), Schedulers.parallel());
+        List<String> frames = coalescer.coalesce(Flux.concat(Flux.just("a", "b"), Flux.error(new IllegalStateException())))
+                .onErrorResume(error -> Flux.just("<error>"))
+                .collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("ab", "<error>"), frames);
+    }
+
+    @Test
+    void countUtf8Bytes() {
+        assertEquals(1 + 2 + 3 + 4, ChunkCoalescer.utf8Length("aé中😀"));
+    }
+}
@@ -0,0 +1,21 @@
+package com.erokin.mokaaicodemother.core.stream;
+
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkJsonEncoderTest {
+
+    @Test
+    void encodeRoundTripsThroughJsonParser() {
+        ChunkJsonEncoder encoder = new ChunkJsonEncoder();
+        String[] chunks = {"", "plain", "```html\n<div class=\"a\">\\</div>\r\n", "tab\tbell\u0007",
+                "中文😀", "line\u2028para\u2029end", "</script>"};
+        for (String chunk : chunks) {
+            String json = encoder.encode(chunk);
+            assertEquals(chunk, JSONUtil.parseObj(json).getStr("d"), json);
+        }
+        assertEquals("{\"d\":\"a\\\"b\\n\\u0001\"}", encoder.encode("a\"b\n\u0001"));
+    }
+}
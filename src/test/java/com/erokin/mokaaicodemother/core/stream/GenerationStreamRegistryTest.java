@@ -0,0 +1,142 @@
+package com.erokin.mokaaicodemother.core.stream;
+
+import com.erokin.mokaaicodemother.exception.BusinessException;
+import com.erokin.mokaaicodemother.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationStreamRegistryTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void resumeAfterLastEventId() {
+        GenerationStreamRegistry registry = newRegistry(1000, Duration.ofMinutes(1));
+        Sinks.Many<ServerSentEvent<String>> source = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<ServerSentEvent<String>> stream = registry.startOrJoin(1L, 10L, "msg", source::asFlux);
+        source.tryEmitNext(event("a"));
+        source.tryEmitNext(event("b"));
+        // 客户端收到两个事件后断线
+        List<ServerSentEvent<String>> received = stream.take(2).collectList().block(TIMEOUT);
+        String lastEventId = received.get(1).id();
+        source.tryEmitNext(event("c"));
+        source.tryEmitComplete();
+
+        assertNull(registry.resume(lastEventId, 1L, 11L));
+        assertNull(registry.resume(lastEventId, 2L, 10L));
+        assertNull(registry.resume("unknown.1", 1L, 10L));
+        List<ServerSentEvent<String>> resumed = registry.resume(lastEventId, 1L, 10L).collectList().block(TIMEOUT);
+        assertEquals(List.of("c"), resumed.stream().map(ServerSentEvent::data).toList());
+        assertEquals(List.of("a", "b", "c"), registry.resume(received.get(0).id().replaceAll("\\d+$", "0"), 1L, 10L)
+                .map(ServerSentEvent::data).collectList().block(TIMEOUT));
+    }
+
+    @Test
+    void failResumeWhenEventsEvicted() {
+        GenerationStreamRegistry registry = newRegistry(2, Duration.ofMinutes(1));
+        Sinks.Many<ServerSentEvent<String>> source = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<ServerSentEvent<String>> stream = registry.startOrJoin(1L, 10L, "msg", source::asFlux);
+        List<ServerSentEvent<String>> received = new ArrayList<>();
+        stream.subscribe(received::add);
+        source.tryEmitNext(event("a"));
+        source.tryEmitNext(event("b"));
+        source.tryEmitNext(event("c"));
+        source.tryEmitComplete();
+        // 已连接的客户端不受缓冲淘汰影响
+        assertEquals(3, received.size());
+        String firstId = received.get(0).id();
+        assertThrows(BusinessException.class,
+                () -> registry.resume(firstId.replaceAll("\\d+$", "0"), 1L, 10L).blockLast(TIMEOUT));
+        assertEquals(List.of("c"), registry.resume(firstId.replaceAll("\\d+$", "2"), 1L, 10L)
+                .map(ServerSentEvent::data).collectList().block(TIMEOUT));
+    }
+
+    @Test
+    void cancelUpstreamWhenDetachedTooLong() throws InterruptedException {
+        GenerationStreamRegistry registry = newRegistry(1000, Duration.ofMillis(50));
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<ServerSentEvent<String>> source = Flux.concat(Flux.just(event("a")), Flux.<ServerSentEvent<String>>never())
+                .doOnCancel(() -> cancelled.set(true));
+        registry.startOrJoin(1L, 10L, "msg", () -> source).blockFirst(TIMEOUT);
+        for (int i = 0; i < 100 && !cancelled.get(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(cancelled.get());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void joinInFlightGenerationOfSameApp() {
+        GenerationStreamRegistry registry = newRegistry(1000, Duration.ofMinutes(1));
+        Sinks.Many<ServerSentEvent<String>> source = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger upstreamCount = new AtomicInteger();
+        List<ServerSentEvent<String>> first = new ArrayList<>();
+        registry.startOrJoin(1L, 10L, "msg", () -> {
+            upstreamCount.incrementAndGet();
+            return source.asFlux();
+        }).subscribe(first::add);
+        source.tryEmitNext(event("a"));
+
+        List<ServerSentEvent<String>> second = new ArrayList<>();
+        registry.startOrJoin(1L, 10L, "msg", () -> {
+            upstreamCount.incrementAndGet();
+            return Flux.never();
+        }).subscribe(second::add);
+        // 以错误信号结束而不是同步抛出，控制器才能转换为 business-error 事件
+        Flux<ServerSentEvent<String>> rejected = assertDoesNotThrow(() -> registry.startOrJoin(1L, 11L, "msg", Flux::never));
+        BusinessException e = assertThrows(BusinessException.class, () -> rejected.blockFirst(TIMEOUT));
+        assertEquals(ErrorCode.NO_AUTH_ERROR.getCode(), e.getCode());
+        source.tryEmitNext(event("b"));
+        source.tryEmitComplete();
+
+        assertEquals(1, upstreamCount.get());
+        assertEquals(first, second);
+        assertEquals(2, second.size());
+        assertFalse(registry.isInFlight(1L));
+    }
+
+    @Test
+    void rejectDifferentMessageWhileInFlight() {
+        GenerationStreamRegistry registry = newRegistry(1000, Duration.ofMinutes(1));
+        Sinks.Many<ServerSentEvent<String>> source = Sinks.many().unicast().onBackpressureBuffer();
+        registry.startOrJoin(1L, 10L, "msg", source::asFlux).subscribe();
+        AtomicBoolean secondUpstream = new AtomicBoolean();
+        BusinessException e = assertThrows(BusinessException.class, () -> registry.startOrJoin(1L, 10L, "other", () -> {
+            secondUpstream.set(true);
+            return Flux.never();
+        }).blockFirst(TIMEOUT));
+        assertEquals("该应用正在生成中", e.getMessage());
+        assertFalse(secondUpstream.get());
+        assertTrue(registry.isInFlight(1L));
+        source.tryEmitComplete();
+    }
+
+    @Test
+    void releaseAppWhenSourceSupplierFails() {
+        GenerationStreamRegistry registry = newRegistry(1000, Duration.ofMinutes(1));
+        assertThrows(IllegalStateException.class, () -> registry.startOrJoin(1L, 10L, "msg", () -> {
+            throw new IllegalStateException();
+        }));
+        assertFalse(registry.isInFlight(1L));
+        assertEquals(0, registry.size());
+    }
+
+    private static GenerationStreamRegistry newRegistry(long maxBufferedChars, Duration detachTimeout) {
+        return new GenerationStreamRegistry(maxBufferedChars, detachTimeout, Duration.ofMinutes(1), Schedulers.parallel());
+    }
+
+    private static ServerSentEvent<String> event(String data) {
+        return ServerSentEvent.<String>builder().data(data).build();
+    }
+}
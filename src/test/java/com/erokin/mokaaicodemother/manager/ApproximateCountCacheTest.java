@@ -0,0 +1,37 @@
+package com.erokin.mokaaicodemother.manager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApproximateCountCacheTest {
+
+    @Test
+    void serveCachedCountAndRefreshInBackground() {
+        List<Runnable> tasks = new ArrayList<>();
+        ApproximateCountCache<String> cache = new ApproximateCountCache<>(Duration.ZERO, Duration.ofMinutes(1), 100,
+                tasks::add, new SimpleMeterRegistry(), "test");
+        AtomicLong total = new AtomicLong(10);
+        AtomicLong counted = new AtomicLong();
+
+        assertEquals(10, cache.get("all", () -> {
+            counted.incrementAndGet();
+            return total.get();
+        }));
+        total.set(11);
+        // 过期后仍返回旧值，只提交一次后台刷新
+        assertEquals(10, cache.get("all", total::get));
+        assertEquals(10, cache.get("all", total::get));
+        assertEquals(1, tasks.size());
+        assertEquals(1, counted.get());
+
+        tasks.getFirst().run();
+        assertEquals(11, cache.get("all", total::get));
+    }
+}
@@ -0,0 +1,99 @@
+package com.erokin.mokaaicodemother.manager;
+
+import com.erokin.mokaaicodemother.mapper.ChatHistoryMapper;
+import com.erokin.mokaaicodemother.model.entity.ChatHistory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ChatHistoryWriteBufferTest {
+
+    private static ChatHistory message(long appId, String text) {
+        return ChatHistory.builder().appId(appId).userId(1L).message(text).messageType("user").build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushInBatchesAndDrainOnClose() {
+        ChatHistoryMapper mapper = mock(ChatHistoryMapper.class);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ChatHistoryWriteBuffer buffer = new ChatHistoryWriteBuffer(mapper, 2, Duration.ofHours(1), 100, registry);
+        // 未达到批量大小前不会写入
+        buffer.add(message(2L, "c"));
+        assertTrue(buffer.hasPending(2L));
+        ChatHistory first = message(1L, "a");
+        buffer.add(first);
+        assertNotNull(first.getId());
+        assertNotNull(first.getCreateTime());
+        buffer.add(message(1L, "b"));
+
+        buffer.close();
+        ArgumentCaptor<List<ChatHistory>> captor = ArgumentCaptor.forClass(List.class);
+        verify(mapper, atLeast(2)).insertBatch(captor.capture());
+        assertEquals(3, captor.getAllValues().stream().mapToInt(List::size).sum());
+        assertFalse(buffer.hasPending(2L));
+        assertEquals(0, registry.get("chat_history.write_buffer.pending").gauge().value());
+    }
+
+    @Test
+    void discardPendingMessagesOfApp() {
+        ChatHistoryMapper mapper = mock(ChatHistoryMapper.class);
+        ChatHistoryWriteBuffer buffer = new ChatHistoryWriteBuffer(mapper, 10, Duration.ofHours(1), 100, new SimpleMeterRegistry());
+        buffer.add(message(1L, "a"));
+        buffer.add(message(2L, "b"));
+        buffer.discard(1L);
+        buffer.flush();
+        verify(mapper).insertBatch(argThat(batch -> batch.size() == 1 && batch.iterator().next().getAppId() == 2L));
+        buffer.close();
+    }
+
+    @Test
+    void waitForInFlightBatchBeforeReportingNoPending() throws Exception {
+        ChatHistoryMapper mapper = mock(ChatHistoryMapper.class);
+        CountDownLatch inserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean committed = new AtomicBoolean();
+        when(mapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            inserting.countDown();
+            release.await();
+            committed.set(true);
+            return 1;
+        });
+        ChatHistoryWriteBuffer buffer = new ChatHistoryWriteBuffer(mapper, 10, Duration.ofHours(1), 100, new SimpleMeterRegistry());
+        buffer.add(message(1L, "a"));
+        Thread flusher = Thread.ofPlatform().start(buffer::flush);
+        assertTrue(inserting.await(5, TimeUnit.SECONDS));
+        // 批次已移出队列但尚未提交，hasPending 需等待写入完成
+        CompletableFuture<Boolean> hasPending = CompletableFuture.supplyAsync(() -> buffer.hasPending(1L));
+        Thread.sleep(100);
+        assertFalse(hasPending.isDone());
+        release.countDown();
+        assertFalse(hasPending.get(5, TimeUnit.SECONDS));
+        assertTrue(committed.get());
+        flusher.join();
+        buffer.close();
+    }
+
+    @Test
+    void fallBackToSingleInsertWhenBatchFails() {
+        ChatHistoryMapper mapper = mock(ChatHistoryMapper.class);
+        when(mapper.insertBatch(anyList())).thenThrow(new RuntimeException("boom"));
+        ChatHistoryWriteBuffer buffer = new ChatHistoryWriteBuffer(mapper, 10, Duration.ofHours(1), 100, new SimpleMeterRegistry());
+        buffer.add(message(1L, "a"));
+        buffer.add(message(1L, "b"));
+        buffer.flush();
+        verify(mapper, times(2)).insert(any(ChatHistory.class));
+        buffer.close();
+    }
+}
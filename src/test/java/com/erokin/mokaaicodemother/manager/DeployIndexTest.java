@@ -0,0 +1,39 @@
+package com.erokin.mokaaicodemother.manager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeployIndexTest {
+
+    @TempDir
+    Path rootDir;
+
+    @Test
+    void loadExistingKeysAndRefreshOnDeploy() throws IOException {
+        Path dir = Files.createDirectories(rootDir.resolve("abc123"));
+        Files.writeString(dir.resolve("index.html"), "v1");
+        StaticFileCache cache = new StaticFileCache(rootDir.toString(), 1024 * 1024, 1024, Duration.ofMinutes(1),
+                new SimpleMeterRegistry(), "test");
+        DeployIndex deployIndex = new DeployIndex(rootDir.toString(), cache);
+        assertTrue(deployIndex.contains("abc123"));
+        assertFalse(deployIndex.contains("xyz789"));
+
+        Path file = cache.resolve("abc123", "/index.html");
+        assertEquals("v1", new String(cache.get("abc123", "/index.html", file).content()));
+        Files.writeString(file, "v2");
+        deployIndex.refresh("abc123");
+        assertEquals("v2", new String(cache.get("abc123", "/index.html", file).content()));
+
+        deployIndex.refresh("xyz789");
+        assertTrue(deployIndex.contains("xyz789"));
+        assertEquals(2, deployIndex.size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.erokin.mokaaicodemother.manager;
+
+import com.erokin.mokaaicodemother.common.CursorPage;
+import com.erokin.mokaaicodemother.common.KeysetCursor;
+import com.erokin.mokaaicodemother.mapper.AppMapper;
+import com.erokin.mokaaicodemother.model.entity.App;
+import com.mybatisflex.core.paginate.Page;
+import com.mybatisflex.core.query.QueryWrapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FeaturedAppSnapshotTest {
+
+    private AppMapper appMapper;
+
+    private FeaturedAppSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        appMapper = mock(AppMapper.class);
+        when(appMapper.selectListByQuery(any(QueryWrapper.class))).thenReturn(List.of(
+                app(5L, "Todo List", 99), app(4L, "Blog", 99), app(3L, "todo board", 50), app(2L, "Shop", 10)));
+        snapshot = new FeaturedAppSnapshot(appMapper, 100, Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshot.close();
+    }
+
+    @Test
+    void pageAndFilterWithoutHittingDatabaseAgain() {
+        Page<App> page = snapshot.page("TODO", 1, 1);
+        assertEquals(2, page.getTotalRow());
+        assertEquals(5L, page.getRecords().getFirst().getId());
+        assertEquals(3L, snapshot.page("todo", 2, 1).getRecords().getFirst().getId());
+        assertTrue(snapshot.page(null, 3, 2).getRecords().isEmpty());
+        verify(appMapper, times(1)).selectListByQuery(any(QueryWrapper.class));
+    }
+
+    @Test
+    void continueFromCursorAcrossEqualPriorities() {
+        CursorPage<App> first = snapshot.listByCursor(null, null, 1);
+        assertEquals(5L, first.getRecords().getFirst().getId());
+        CursorPage<App> second = snapshot.listByCursor(null, KeysetCursor.decode(first.getNextCursor()), 2);
+        assertEquals(List.of(4L, 3L), second.getRecords().stream().map(App::getId).toList());
+        CursorPage<App> last = snapshot.listByCursor(null, KeysetCursor.decode(second.getNextCursor()), 2);
+        assertEquals(List.of(2L), last.getRecords().stream().map(App::getId).toList());
+        assertFalse(last.isHasMore());
+    }
+
+    @Test
+    void reportIncompleteWhenFeaturedAppsExceedMaxSize() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (FeaturedAppSnapshot small = new FeaturedAppSnapshot(appMapper, 3, Duration.ofHours(1), meterRegistry)) {
+            assertFalse(small.isComplete());
+            assertEquals(3, small.page(null, 1, 10).getTotalRow());
+            assertEquals(1.0, meterRegistry.get("featured_app.snapshot.truncated").gauge().value());
+        }
+        assertTrue(snapshot.isComplete());
+    }
+
+    private static App app(long id, String name, int priority) {
+        App app = new App();
+        app.setId(id);
+        app.setAppName(name);
+        app.setPriority(priority);
+        return app;
+    }
+}
@@ -0,0 +1,59 @@
+package com.erokin.mokaaicodemother.manager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticFileCacheTest {
+
+    @TempDir
+    Path rootDir;
+
+    private StaticFileCache newCache(long maxFileSize) {
+        return new StaticFileCache(rootDir.toString(), 1024 * 1024, maxFileSize, Duration.ofMinutes(1),
+                new SimpleMeterRegistry(), "test");
+    }
+
+    @Test
+    void serveFromCacheUntilInvalidated() throws IOException {
+        Path dir = Files.createDirectories(rootDir.resolve("html_1"));
+        Files.writeString(dir.resolve("index.html"), "v1");
+        StaticFileCache cache = newCache(1024);
+        Path file = cache.resolve("html_1", "/index.html");
+
+        StaticFileCache.CachedFile first = cache.get("html_1", "/index.html", file);
+        assertEquals("v1", new String(first.content()));
+        assertTrue(first.eTag().startsWith("\""));
+        Files.writeString(file, "v2");
+        assertSame(first, cache.get("html_1", "/index.html", file));
+
+        cache.invalidate("html_1");
+        StaticFileCache.CachedFile second = cache.get("html_1", "/index.html", file);
+        assertEquals("v2", new String(second.content()));
+        assertNotEquals(first.eTag(), second.eTag());
+    }
+
+    @Test
+    void rejectPathTraversalAndCacheMetadataOnly() throws IOException {
+        Path dir = Files.createDirectories(rootDir.resolve("html_2"));
+        Files.writeString(dir.resolve("big.js"), "x".repeat(100));
+        StaticFileCache cache = newCache(10);
+        assertNull(cache.resolve("html_2", "/../html_3/index.html"));
+        StaticFileCache.CachedFile big = cache.get("html_2", "/big.js", cache.resolve("html_2", "/big.js"));
+        assertTrue(big.exists());
+        assertNull(big.content());
+        assertEquals(100, big.length());
+        assertTrue(big.eTag().startsWith("W/"));
+        assertFalse(cache.get("html_2", "/missing.js", cache.resolve("html_2", "/missing.js")).exists());
+        // 不存在的路径同样被缓存，之后创建的文件需等待失效
+        Files.writeString(dir.resolve("missing.js"), "x");
+        assertFalse(cache.get("html_2", "/missing.js", cache.resolve("html_2", "/missing.js")).exists());
+    }
+}
@@ -0,0 +1,150 @@
+package com.erokin.mokaaicodemother.manager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticFileSenderTest {
+
+    @TempDir
+    Path rootDir;
+
+    private StaticFileSender sender;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path dir = Files.createDirectories(rootDir.resolve("html_1"));
+        Files.writeString(dir.resolve("index.html"), "<p>small</p>");
+        Files.writeString(dir.resolve("index.html.gz"), "gz");
+        Files.writeString(dir.resolve("big.bin"), "0123456789".repeat(10));
+        StaticFileCache cache = new StaticFileCache(rootDir.toString(), 1024 * 1024, 50, Duration.ofMinutes(1),
+                new SimpleMeterRegistry(), "test");
+        sender = new StaticFileSender(cache, 50, CacheControl.maxAge(Duration.ofHours(1)));
+    }
+
+    @Test
+    void negotiateGzipVariant() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8");
+        ResponseEntity<Resource> response = sender.send("html_1", "/index.html", "text/html", true, request,
+                new MockHttpServletResponse());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("gz", response.getBody().getContentAsString(StandardCharsets.UTF_8));
+
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0");
+        response = sender.send("html_1", "/index.html", "text/html", true, request, new MockHttpServletResponse());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaders().getFirst(HttpHeaders.VARY));
+        assertNotNull(response.getHeaders().getETag());
+        assertEquals("no-cache", response.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void useSendfileWithRangeForLargeFiles() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        assertNull(sender.send("html_1", "/big.bin", "application/octet-stream", true, request, servletResponse));
+        assertEquals(206, servletResponse.getStatus());
+        assertEquals("bytes 10-19/100", servletResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(10L, servletResponse.getContentLengthLong());
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(20L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/");
+        conditional.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        conditional.addHeader(HttpHeaders.IF_NONE_MATCH, servletResponse.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertNull(sender.send("html_1", "/big.bin", "application/octet-stream", true, conditional, notModified));
+        assertEquals(304, notModified.getStatus());
+        assertNull(conditional.getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void ignoreRangeWhenIfRangeDoesNotStronglyMatch() throws IOException {
+        // big.bin 超过内容上限，只有弱 ETag，按 If-Range 带回时不能返回部分内容
+        MockHttpServletRequest first = sendfileRangeRequest(null);
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        sender.send("html_1", "/big.bin", "application/octet-stream", true, first, firstResponse);
+        String weakETag = firstResponse.getHeader(HttpHeaders.ETAG);
+        assertTrue(weakETag.startsWith("W/"));
+
+        MockHttpServletResponse weak = new MockHttpServletResponse();
+        sender.send("html_1", "/big.bin", "application/octet-stream", true, sendfileRangeRequest(weakETag), weak);
+        assertEquals(200, weak.getStatus());
+        assertNull(weak.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(100L, weak.getContentLengthLong());
+
+        // 日期与 Last-Modified 一致时返回部分内容，不一致时返回完整内容
+        MockHttpServletResponse sameDate = new MockHttpServletResponse();
+        sender.send("html_1", "/big.bin", "application/octet-stream", true,
+                sendfileRangeRequest(firstResponse.getHeader(HttpHeaders.LAST_MODIFIED)), sameDate);
+        assertEquals(206, sameDate.getStatus());
+        assertEquals("bytes 10-19/100", sameDate.getHeader(HttpHeaders.CONTENT_RANGE));
+
+        MockHttpServletResponse otherDate = new MockHttpServletResponse();
+        sender.send("html_1", "/big.bin", "application/octet-stream", true,
+                sendfileRangeRequest("Thu, 01 Jan 2015 00:00:00 GMT"), otherDate);
+        assertEquals(200, otherDate.getStatus());
+        assertEquals(100L, otherDate.getContentLengthLong());
+    }
+
+    @Test
+    void useSendfileForCachedFilesAboveThreshold() throws IOException {
+        // 内容上限 1MB，big.bin 的内容已缓存，但不小于阈值时仍走 sendfile
+        StaticFileCache cache = new StaticFileCache(rootDir.toString(), 1024 * 1024, 1024 * 1024, Duration.ofMinutes(1),
+                new SimpleMeterRegistry(), "test");
+        StaticFileSender thresholdSender = new StaticFileSender(cache, 50, CacheControl.noCache());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        assertNull(thresholdSender.send("html_1", "/big.bin", "application/octet-stream", true, request, servletResponse));
+        assertNotNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(100L, servletResponse.getContentLengthLong());
+
+        // 低于阈值的文件仍从内存缓存输出
+        MockHttpServletRequest small = new MockHttpServletRequest("GET", "/");
+        small.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        ResponseEntity<Resource> response = thresholdSender.send("html_1", "/index.html", "text/html", true, small,
+                new MockHttpServletResponse());
+        assertEquals("<p>small</p>", response.getBody().getContentAsString(StandardCharsets.UTF_8));
+        assertNull(small.getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void fallBackToResourceWithoutSendfileSupport() throws IOException {
+        ResponseEntity<Resource> response = sender.send("html_1", "/big.bin", "application/octet-stream", true,
+                new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+        assertEquals(100, response.getBody().contentLength());
+        assertEquals("max-age=3600", response.getHeaders().getCacheControl());
+        assertEquals(404, sender.send("html_1", "/missing.js", "application/javascript", true,
+                new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse()).getStatusCode().value());
+    }
+
+    private static MockHttpServletRequest sendfileRangeRequest(String ifRange) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+        if (ifRange != null) {
+            request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+        }
+        return request;
+    }
+}
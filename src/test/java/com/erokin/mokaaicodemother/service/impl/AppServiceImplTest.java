@@ -0,0 +1,88 @@
+package com.erokin.mokaaicodemother.service.impl;
+
+import com.erokin.mokaaicodemother.common.CursorPage;
+import com.erokin.mokaaicodemother.manager.FeaturedAppSnapshot;
+import com.erokin.mokaaicodemother.mapper.AppMapper;
+import com.erokin.mokaaicodemother.model.dto.app.AppQueryRequest;
+import com.erokin.mokaaicodemother.model.entity.App;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mybatisflex.core.query.QueryWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class AppServiceImplTest {
+
+    private AppServiceImpl appService;
+
+    private AppMapper appMapper;
+
+    @BeforeEach
+    void setUp() {
+        appService = new AppServiceImpl();
+        appMapper = mock(AppMapper.class);
+        Cache<Long, App> appCache = Caffeine.newBuilder().build();
+        ReflectionTestUtils.setField(appService, "appCache", appCache);
+        ReflectionTestUtils.setField(appService, "mapper", appMapper);
+        when(appMapper.selectOneById(any(Serializable.class))).thenAnswer(invocation -> {
+            if (!Long.valueOf(1L).equals(invocation.getArgument(0))) {
+                return null;
+            }
+            App app = new App();
+            app.setId(1L);
+            app.setAppName("demo");
+            return app;
+        });
+    }
+
+    @Test
+    void readThroughCacheAndInvalidateOnUpdate() {
+        App first = appService.getById(1L);
+        // 修改返回的对象不影响缓存
+        first.setAppName("changed");
+        assertEquals("demo", appService.getById(1L).getAppName());
+        verify(appMapper, times(1)).selectOneById(any(Serializable.class));
+
+        App update = new App();
+        update.setId(1L);
+        appService.updateById(update);
+        appService.getById(1L);
+        verify(appMapper, times(2)).selectOneById(any(Serializable.class));
+    }
+
+    @Test
+    void queryDatabaseWhenFeaturedSnapshotIsIncomplete() {
+        FeaturedAppSnapshot featuredAppSnapshot = mock(FeaturedAppSnapshot.class);
+        ReflectionTestUtils.setField(appService, "featuredAppSnapshot", featuredAppSnapshot);
+        App featured = new App();
+        featured.setId(7L);
+        featured.setPriority(99);
+        when(appMapper.selectListByQuery(any(QueryWrapper.class))).thenReturn(List.of(featured));
+
+        CursorPage<App> page = appService.listFeaturedAppByCursor(new AppQueryRequest(), 10);
+        assertEquals(List.of(7L), page.getRecords().stream().map(App::getId).toList());
+        verify(featuredAppSnapshot, never()).listByCursor(any(), any(), anyInt());
+
+        when(featuredAppSnapshot.isComplete()).thenReturn(true);
+        appService.listFeaturedAppByCursor(new AppQueryRequest(), 10);
+        verify(featuredAppSnapshot).listByCursor(any(), any(), anyInt());
+        verify(appMapper, times(1)).selectListByQuery(any(QueryWrapper.class));
+    }
+
+    @Test
+    void missingAppIsNotCached() {
+        assertNull(appService.getById(2L));
+        assertNull(appService.getById(2L));
+        assertNull(appService.getById(null));
+        verify(appMapper, times(2)).selectOneById(any(Serializable.class));
+    }
+}
@@ -0,0 +1,67 @@
+package com.erokin.mokaaicodemother.service.impl;
+
+import com.erokin.mokaaicodemother.mapper.UserMapper;
+import com.erokin.mokaaicodemother.model.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static com.erokin.mokaaicodemother.constant.UserConstant.USER_LOGIN_STATE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserServiceImplTest {
+
+    private UserServiceImpl userService;
+
+    private MockHttpSession session;
+
+    @BeforeEach
+    void setUp() {
+        UserServiceImpl target = new UserServiceImpl();
+        Cache<Long, User> userCache = Caffeine.newBuilder().build();
+        ReflectionTestUtils.setField(target, "userCache", userCache);
+        ReflectionTestUtils.setField(target, "mapper", mock(UserMapper.class));
+        userService = spy(target);
+        User user = new User();
+        user.setId(1L);
+        user.setUserRole("user");
+        doAnswer(invocation -> {
+            User copy = new User();
+            copy.setId(1L);
+            copy.setUserRole("admin");
+            return copy;
+        }).when(userService).getById(1L);
+        session = new MockHttpSession();
+        session.setAttribute(USER_LOGIN_STATE, user);
+    }
+
+    @Test
+    void readUserOncePerRequestAndCacheAcrossRequests() {
+        MockHttpServletRequest request = newRequest();
+        User first = userService.getLoginUser(request);
+        assertSame(first, userService.getLoginUser(request));
+        assertEquals("admin", first.getUserRole());
+
+        // 修改返回的对象不影响缓存
+        first.setUserRole("user");
+        assertEquals("admin", userService.getLoginUser(newRequest()).getUserRole());
+        verify(userService, times(1)).getById(1L);
+
+        User update = new User();
+        update.setId(1L);
+        userService.updateById(update);
+        userService.getLoginUser(newRequest());
+        verify(userService, times(2)).getById(1L);
+    }
+
+    private MockHttpServletRequest newRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setSession(session);
+        return request;
+    }
+}